@@ -0,0 +1,56 @@
+package com.github.gavro081.benchmarks;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.converter.EventSchema;
+import com.github.gavro081.common.converter.EventSchemas;
+import com.github.gavro081.common.events.OrderCreatedEvent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ClassMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving an event type from a message and back: the {@code DefaultClassMapper} behind
+ * {@link RabbitMQConfig#jsonMessageConverter()}, which maps {@code __TypeId__} class names,
+ * against the type-id lookup of the binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassMapperBenchmark {
+    private ClassMapper classMapper;
+    private MessageProperties typed;
+
+    @Setup
+    public void setUp() {
+        classMapper = RabbitMQConfig.jsonMessageConverter().getClassMapper();
+        typed = new MessageProperties();
+        classMapper.fromClass(OrderCreatedEvent.class, typed);
+    }
+
+    @Benchmark
+    public Class<?> classMapperToClass() {
+        return classMapper.toClass(typed);
+    }
+
+    @Benchmark
+    public MessageProperties classMapperFromClass() {
+        MessageProperties properties = new MessageProperties();
+        classMapper.fromClass(OrderCreatedEvent.class, properties);
+        return properties;
+    }
+
+    @Benchmark
+    public EventSchema<?> binarySchemaForId() {
+        return EventSchemas.forId(1);
+    }
+
+    @Benchmark
+    public EventSchema<?> binarySchemaForType() {
+        return EventSchemas.forType(OrderCreatedEvent.class);
+    }
+}
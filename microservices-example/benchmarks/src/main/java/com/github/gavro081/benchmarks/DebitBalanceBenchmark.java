@@ -0,0 +1,103 @@
+package com.github.gavro081.benchmarks;
+
+import com.github.gavro081.benchmarks.support.AckingRabbitTemplate;
+import com.github.gavro081.benchmarks.support.InMemoryRepository;
+import com.github.gavro081.benchmarks.support.InMemoryTransactionManager;
+import com.github.gavro081.common.dedupe.ProcessedEventFilter;
+import com.github.gavro081.common.events.InventoryReservedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.github.gavro081.common.publisher.PublisherProperties;
+import com.github.gavro081.userservice.models.ProcessedEvent;
+import com.github.gavro081.userservice.models.ProcessedEventId;
+import com.github.gavro081.userservice.repositories.ProcessedEventRepository;
+import com.github.gavro081.userservice.repositories.UserRepository;
+import com.github.gavro081.userservice.services.ProcessedEventService;
+import com.github.gavro081.userservice.services.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link UserService#debitUserBalance} for a user who can afford every order, against in-memory
+ * repositories and a publisher that is confirmed on the spot: dedupe, the guarded debit and
+ * building and converting the balance.success event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DebitBalanceBenchmark {
+    private static final long USER_ID = 7L;
+
+    private final Set<ProcessedEventId> processed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong balanceBits = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionTemplate transaction = new TransactionTemplate(new InMemoryTransactionManager());
+    private UserRepository userRepository;
+    private ConfirmingPublisher publisher;
+    private UserService userService;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        balanceBits.set(Double.doubleToLongBits(1e15));
+        userRepository = InMemoryRepository.of(UserRepository.class)
+                .on("debitBalance", args -> USER_ID == (Long) args[0] ? debitBalance((Double) args[1]) : 0)
+                .on("existsById", args -> USER_ID == (Long) args[0])
+                .build();
+        publisher = new ConfirmingPublisher(new AckingRabbitTemplate(false),
+                new PublisherProperties(1000, Duration.ofSeconds(5), 10, Duration.ofMillis(100), Duration.ofSeconds(10)),
+                meterRegistry);
+    }
+
+//    a fresh dedupe table and filter per iteration, so the Bloom filter never saturates mid-run
+    @Setup(Level.Iteration)
+    public void resetDedupe() {
+        processed.clear();
+        ProcessedEventRepository processedEventRepository = InMemoryRepository.of(ProcessedEventRepository.class)
+                .on("existsById", args -> processed.contains((ProcessedEventId) args[0]))
+                .on("save", args -> {
+                    processed.add(((ProcessedEvent) args[0]).getId());
+                    return args[0];
+                })
+                .build();
+        ProcessedEventService processedEventService = new ProcessedEventService(processedEventRepository,
+                new ProcessedEventFilter(1_000_000, 0.01, 10_000), transaction.getTransactionManager(), meterRegistry);
+        userService = new UserService(userRepository, publisher, processedEventService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        publisher.close();
+    }
+
+    @Benchmark
+    public void debitUserBalance() {
+        InventoryReservedEvent event = new InventoryReservedEvent(
+                new UUID(0, ++sequence), String.valueOf(USER_ID), "101", "MacBook Pro M4Pro", 1, 2499.99, 2499.99, "gavro");
+        transaction.executeWithoutResult(status -> userService.debitUserBalance(event));
+    }
+
+    private int debitBalance(double amount) {
+        long current;
+        double balance;
+        do {
+            current = balanceBits.get();
+            balance = Double.longBitsToDouble(current);
+            if (balance < amount) {
+                return 0;
+            }
+        } while (!balanceBits.compareAndSet(current, Double.doubleToLongBits(balance - amount)));
+        return 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.gavro081.benchmarks;
+
+import com.github.gavro081.benchmarks.support.SampleEvents;
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.converter.BinaryMessageConverter;
+import com.github.gavro081.common.converter.NegotiatingMessageConverter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting each event to and from a message in both wire formats, through the same
+ * {@link NegotiatingMessageConverter} the services use. Bytes per message are written
+ * separately by {@link MessageSizeReport}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventSerializationBenchmark {
+    @Param({"OrderCreatedEvent", "InventoryReservedEvent", "InventoryReservationFailedEvent",
+            "BalanceDebitedEvent", "BalanceDebitFailedEvent", "ProductChangedEvent", "UserChangedEvent"})
+    public String event;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private MessageConverter converter;
+    private Object payload;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        converter = new NegotiatingMessageConverter(
+                RabbitMQConfig.jsonMessageConverter(), new BinaryMessageConverter(), format.equals("binary"));
+        payload = SampleEvents.byName(event);
+        message = converter.toMessage(payload, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message serialize() {
+        return converter.toMessage(payload, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return converter.fromMessage(message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.gavro081.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.gavro081.benchmarks.support.SampleEvents;
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.converter.BinaryMessageConverter;
+import com.github.gavro081.common.converter.NegotiatingMessageConverter;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the body size and total header size of every sample event in both wire formats as
+ * JSON, next to the JMH results. Sizes are deterministic, so they don't need a benchmark run.
+ */
+public class MessageSizeReport {
+    public static void main(String[] args) throws IOException {
+        Map<String, NegotiatingMessageConverter> converters = new LinkedHashMap<>();
+        converters.put("json", new NegotiatingMessageConverter(
+                RabbitMQConfig.jsonMessageConverter(), new BinaryMessageConverter(), false));
+        converters.put("binary", new NegotiatingMessageConverter(
+                RabbitMQConfig.jsonMessageConverter(), new BinaryMessageConverter(), true));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        SampleEvents.all().forEach((name, event) -> converters.forEach((format, converter) -> {
+            Message message = converter.toMessage(event, new MessageProperties());
+            int headerBytes = message.getMessageProperties().getHeaders().entrySet().stream()
+                    .mapToInt(header -> header.getKey().length() + String.valueOf(header.getValue()).length())
+                    .sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("event", name);
+            row.put("format", format);
+            row.put("contentType", message.getMessageProperties().getContentType());
+            row.put("bodyBytes", message.getBody().length);
+            row.put("headerBytes", headerBytes);
+            rows.add(row);
+        }));
+
+        File output = new File(args.length > 0 ? args[0] : "message-sizes.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, rows);
+        System.out.println("Wrote message sizes for " + rows.size() / converters.size() + " events to " + output);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.gavro081.benchmarks;
+
+import com.github.gavro081.orderservice.models.OrderStatus;
+import com.github.gavro081.orderservice.services.NotificationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NotificationService#notifyOrderStatusUpdate}: building the status payload and
+ * converting it to a STOMP message with the converters the simple broker is configured with.
+ * The message is handed to a channel that just keeps it, so no subscriber fan-out is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationPayloadBenchmark {
+    private final UUID orderId = UUID.randomUUID();
+    private NotificationService notificationService;
+    private Message<?> lastSent;
+
+    @Setup
+    public void setUp() {
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> {
+            lastSent = message;
+            return true;
+        });
+        messagingTemplate.setMessageConverter(new CompositeMessageConverter(List.of(
+                new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+        notificationService = new NotificationService(messagingTemplate);
+    }
+
+    @Benchmark
+    public Message<?> notifyOrderStatusUpdate() {
+        notificationService.notifyOrderStatusUpdate("gavro", orderId, OrderStatus.COMPLETED);
+        return lastSent;
+    }
+}
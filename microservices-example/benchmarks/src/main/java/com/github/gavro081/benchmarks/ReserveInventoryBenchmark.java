@@ -0,0 +1,128 @@
+package com.github.gavro081.benchmarks;
+
+import com.github.gavro081.benchmarks.support.AckingRabbitTemplate;
+import com.github.gavro081.benchmarks.support.InMemoryRepository;
+import com.github.gavro081.benchmarks.support.InMemoryTransactionManager;
+import com.github.gavro081.benchmarks.support.Lifecycle;
+import com.github.gavro081.common.dedupe.ProcessedEventFilter;
+import com.github.gavro081.common.events.OrderCreatedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.github.gavro081.common.publisher.PublisherProperties;
+import com.github.gavro081.productservice.config.HotInventoryProperties;
+import com.github.gavro081.productservice.models.ProcessedEvent;
+import com.github.gavro081.productservice.models.ProcessedEventId;
+import com.github.gavro081.productservice.models.Product;
+import com.github.gavro081.productservice.repositories.InventoryJournalRepository;
+import com.github.gavro081.productservice.repositories.ProcessedEventRepository;
+import com.github.gavro081.productservice.repositories.ProductRepository;
+import com.github.gavro081.productservice.services.HotInventoryService;
+import com.github.gavro081.productservice.services.ProcessedEventService;
+import com.github.gavro081.productservice.services.ProductCatalog;
+import com.github.gavro081.productservice.services.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ProductService#reserveInventory} for a product with plenty of stock, against in-memory
+ * repositories and a publisher that is confirmed on the spot, so only the service's own work is
+ * measured: dedupe, the guarded decrement (or the striped in-memory stock for a hot product),
+ * after-commit bookkeeping and building and converting the outgoing event. Each invocation also
+ * creates its incoming event, which costs one {@code UUID.randomUUID()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReserveInventoryBenchmark {
+    private static final long PRODUCT_ID = 101L;
+
+    @Param({"row", "hot"})
+    public String stock;
+
+    private final Set<ProcessedEventId> processed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger rowQuantity = new AtomicInteger();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionTemplate transaction = new TransactionTemplate(new InMemoryTransactionManager());
+    private Product product;
+    private ProductRepository productRepository;
+    private ConfirmingPublisher publisher;
+    private HotInventoryService hotInventory;
+    private ProductCatalog productCatalog;
+    private ProductService productService;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        product = new Product(PRODUCT_ID, "MacBook Pro M4Pro", "laptops", 2499.99, Integer.MAX_VALUE);
+        rowQuantity.set(Integer.MAX_VALUE);
+        productRepository = InMemoryRepository.of(ProductRepository.class)
+                .on("findById", args -> PRODUCT_ID == (Long) args[0] ? Optional.of(product) : Optional.empty())
+                .on("findAllById", args -> List.of(product))
+                .on("decrementStock", args -> decrementStock((Integer) args[1]))
+                .build();
+        InventoryJournalRepository journalRepository = InMemoryRepository.of(InventoryJournalRepository.class)
+                .on("save", args -> args[0])
+                .on("findAllByOrderById", args -> List.of())
+                .build();
+
+        publisher = new ConfirmingPublisher(new AckingRabbitTemplate(false),
+                new PublisherProperties(1000, Duration.ofSeconds(5), 10, Duration.ofMillis(100), Duration.ofSeconds(10)),
+                meterRegistry);
+        hotInventory = new HotInventoryService(productRepository, journalRepository, transaction, new HotInventoryProperties(
+                stock.equals("hot"), Set.of(PRODUCT_ID), Set.of(), 8, Duration.ofMillis(500), 1000), 0);
+        Lifecycle.postConstruct(hotInventory, "start");
+        productCatalog = new ProductCatalog(productRepository, meterRegistry);
+    }
+
+//    a fresh dedupe table and filter per iteration, so the Bloom filter never saturates mid-run
+    @Setup(Level.Iteration)
+    public void resetDedupe() {
+        processed.clear();
+        ProcessedEventRepository processedEventRepository = InMemoryRepository.of(ProcessedEventRepository.class)
+                .on("existsById", args -> processed.contains((ProcessedEventId) args[0]))
+                .on("save", args -> {
+                    processed.add(((ProcessedEvent) args[0]).getId());
+                    return args[0];
+                })
+                .build();
+        ProcessedEventService processedEventService = new ProcessedEventService(processedEventRepository,
+                new ProcessedEventFilter(1_000_000, 0.01, 10_000), transaction.getTransactionManager(), meterRegistry);
+        productService = new ProductService(productRepository, processedEventService, publisher, hotInventory, productCatalog);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        publisher.close();
+    }
+
+    @Benchmark
+    public void reserveInventory() {
+        OrderCreatedEvent event = new OrderCreatedEvent(
+                new UUID(0, ++sequence), String.valueOf(PRODUCT_ID), "7", 1, "gavro");
+        transaction.executeWithoutResult(status -> productService.reserveInventory(event));
+    }
+
+    private int decrementStock(int quantity) {
+        int current;
+        do {
+            current = rowQuantity.get();
+            if (current < quantity) {
+                return 0;
+            }
+        } while (!rowQuantity.compareAndSet(current, current - quantity));
+        return 1;
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.gavro081.benchmarks.support;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.converter.BinaryMessageConverter;
+import com.github.gavro081.common.converter.NegotiatingMessageConverter;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+/**
+ * A RabbitTemplate that never opens a connection: every send is confirmed on the spot. Messages
+ * are still built by the services' converter, so serialization stays part of the measured cost.
+ */
+public class AckingRabbitTemplate extends RabbitTemplate {
+
+    public AckingRabbitTemplate(boolean binaryPublishing) {
+        super(confirmingConnectionFactory());
+        setMessageConverter(new NegotiatingMessageConverter(
+                RabbitMQConfig.jsonMessageConverter(), new BinaryMessageConverter(), binaryPublishing));
+    }
+
+    private static CachingConnectionFactory confirmingConnectionFactory() {
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory();
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        return connectionFactory;
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        if (correlationData != null) {
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+    }
+}
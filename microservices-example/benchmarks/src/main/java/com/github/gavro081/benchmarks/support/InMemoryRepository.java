@@ -0,0 +1,51 @@
+package com.github.gavro081.benchmarks.support;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds a Spring Data repository interface backed by plain lambdas, so services can be
+ * benchmarked without a database or an application context. Only the methods given a handler
+ * are implemented; calling any other one fails loudly instead of returning a misleading default.
+ */
+public final class InMemoryRepository<R> {
+    private final Class<R> type;
+    private final Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+
+    private InMemoryRepository(Class<R> type) {
+        this.type = type;
+    }
+
+    public static <R> InMemoryRepository<R> of(Class<R> type) {
+        return new InMemoryRepository<>(type);
+    }
+
+    public InMemoryRepository<R> on(String method, Function<Object[], Object> handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    public R build() {
+        Map<String, Function<Object[], Object>> bound = Map.copyOf(handlers);
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                default:
+                    Function<Object[], Object> handler = bound.get(method.getName());
+                    if (handler == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName()
+                                + " is not implemented in memory");
+                    }
+                    return handler.apply(args);
+            }
+        });
+        return type.cast(proxy);
+    }
+}
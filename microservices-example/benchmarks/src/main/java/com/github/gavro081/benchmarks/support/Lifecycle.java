@@ -0,0 +1,21 @@
+package com.github.gavro081.benchmarks.support;
+
+import java.lang.reflect.Method;
+
+/**
+ * Calls a bean's package-private {@code @PostConstruct} method the way the container would.
+ */
+public final class Lifecycle {
+    private Lifecycle() {
+    }
+
+    public static void postConstruct(Object bean, String methodName) {
+        try {
+            Method method = bean.getClass().getDeclaredMethod(methodName);
+            method.setAccessible(true);
+            method.invoke(bean);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not run " + bean.getClass().getSimpleName() + "." + methodName, e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.gavro081.benchmarks.support;
+
+import com.github.gavro081.common.enums.DebitFailureReason;
+import com.github.gavro081.common.enums.ReservationFailureReason;
+import com.github.gavro081.common.events.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One realistic instance of every event in {@code common.events}, keyed by simple class name,
+ * so the JMH {@code @Param} values and the size report stay in step.
+ */
+public final class SampleEvents {
+    private SampleEvents() {
+    }
+
+    public static Map<String, Object> all() {
+        UUID orderId = UUID.randomUUID();
+        Map<String, Object> events = new LinkedHashMap<>();
+        put(events, new OrderCreatedEvent(orderId, "101", "7", 3, "gavro"));
+        put(events, new InventoryReservedEvent(orderId, "7", "101", "MacBook Pro M4Pro", 3, 2499.99, 7499.97, "gavro"));
+        put(events, new InventoryReservationFailedEvent(orderId, "101", ReservationFailureReason.INSUFFICIENT_STOCK,
+                "Insufficient stock, available items: 2", "gavro"));
+        put(events, new BalanceDebitedEvent(orderId, 7L, "101", 7499.97, "MacBook Pro M4Pro", "gavro"));
+        put(events, new BalanceDebitFailedEvent(orderId, "101", 3, DebitFailureReason.INSUFFICIENT_FUNDS,
+                "Insufficient funds", "gavro"));
+        put(events, new ProductChangedEvent(101L, "MacBook Pro M4Pro"));
+        put(events, new UserChangedEvent(7L, "gavro"));
+        return events;
+    }
+
+    public static Object byName(String name) {
+        Object event = all().get(name);
+        if (event == null) {
+            throw new IllegalArgumentException("No sample for event " + name);
+        }
+        return event;
+    }
+
+    private static void put(Map<String, Object> events, Object event) {
+        events.put(event.getClass().getSimpleName(), event);
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.gavro081.benchmarks.saga;
+
+import com.github.fridujo.rabbitmq.mock.MockConnectionFactory;
+import com.github.gavro081.orderservice.OrderServiceApplication;
+import com.github.gavro081.productservice.ProductServiceApplication;
+import com.github.gavro081.userservice.UserServiceApplication;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots product-, user- and order-service in this JVM. Each service reads its own
+ * application.properties, gets an in-memory H2 database and a random port, and talks to the
+ * others through one shared in-process broker instead of RabbitMQ. The services declare their
+ * exchanges, queues and bindings from RabbitMQConfig against that broker exactly as they would
+ * against a real one. Eureka is switched off; order-service finds the other two through simple
+ * discovery instead.
+ */
+public class SagaCluster implements AutoCloseable {
+    private final MockConnectionFactory broker = new MockConnectionFactory();
+    private final List<CachingConnectionFactory> connectionFactories = new ArrayList<>();
+    private final ConfigurableApplicationContext product;
+    private final ConfigurableApplicationContext user;
+    private final ConfigurableApplicationContext order;
+
+    public SagaCluster() {
+        product = start(ProductServiceApplication.class, "product");
+        user = start(UserServiceApplication.class, "user");
+        order = start(OrderServiceApplication.class, "order",
+                "--spring.cloud.discovery.client.simple.instances.product-service[0].uri=http://localhost:" + port(product),
+                "--spring.cloud.discovery.client.simple.instances.user-service[0].uri=http://localhost:" + port(user));
+    }
+
+    public ConfigurableApplicationContext product() {
+        return product;
+    }
+
+    public ConfigurableApplicationContext user() {
+        return user;
+    }
+
+    public ConfigurableApplicationContext order() {
+        return order;
+    }
+
+    private ConfigurableApplicationContext start(Class<?> application, String database, String... extraArgs) {
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory(broker);
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        connectionFactories.add(connectionFactory);
+
+        List<String> args = new ArrayList<>(List.of(
+//                all three services sit on this classpath, so point each one at its own properties file
+                "--spring.config.location=" + ownProperties(application),
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop"));
+        args.addAll(List.of(extraArgs));
+
+        return new SpringApplicationBuilder(application)
+//                replaces the auto-configured factory, which would dial localhost:5672
+                .initializers(context -> context.getBeanFactory()
+                        .registerSingleton("rabbitConnectionFactory", connectionFactory))
+                .run(args.toArray(String[]::new));
+    }
+
+    private static String ownProperties(Class<?> application) {
+        URL codeSource = application.getProtectionDomain().getCodeSource().getLocation();
+        String location = codeSource.toString();
+        return location.endsWith(".jar")
+                ? "jar:" + location + "!/application.properties"
+                : location + "application.properties";
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    @Override
+    public void close() {
+//        order first, so nothing is still waiting on a lookup or a confirm when the others stop
+        order.close();
+        user.close();
+        product.close();
+        connectionFactories.forEach(CachingConnectionFactory::destroy);
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.gavro081.benchmarks.saga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.gavro081.orderservice.dao.OrderRequest;
+import com.github.gavro081.orderservice.services.OrderService;
+import com.github.gavro081.productservice.models.Product;
+import com.github.gavro081.productservice.repositories.ProductRepository;
+import com.github.gavro081.userservice.models.User;
+import com.github.gavro081.userservice.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives orders through the full saga in one JVM (see {@link SagaCluster}) at a fixed arrival
+ * rate and reports how many reach a final state per second, plus p50/p99 latency from the
+ * PENDING row being committed to the COMPLETED/FAILED status notification.
+ *
+ * <p>Not picked up by a plain {@code mvn test}; run it explicitly:
+ * <pre>
+ * mvn -Pbenchmarks -pl benchmarks -am test -Dtest=SagaThroughputHarness -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dsaga.rate=200 -Dsaga.duration=30s
+ * </pre>
+ * A warmup run at the same rate ({@code -Dsaga.warmup}, default 10s) comes first and is left
+ * out of the numbers, so JIT compilation and connection pools filling up aren't measured.
+ * By default every product and user is topped up first, so orders complete instead of
+ * running the seed data dry; {@code -Dsaga.restock=false} keeps the seeded stock and balances
+ * and lets the compensation paths into the measurement.
+ */
+class SagaThroughputHarness {
+    private static final String STATUS_DESTINATION = "/topic/order-status/";
+
+    private final int rate = Integer.getInteger("saga.rate", 100);
+    private final Duration duration = Duration.parse("PT" + System.getProperty("saga.duration", "20s"));
+    private final Duration warmup = Duration.parse("PT" + System.getProperty("saga.warmup", "10s"));
+    private final Duration drainTimeout = Duration.parse("PT" + System.getProperty("saga.drain-timeout", "30s"));
+    private final boolean restock = Boolean.parseBoolean(System.getProperty("saga.restock", "true"));
+    private final File report = new File(System.getProperty("saga.report", "target/saga-throughput.json"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<UUID, Long> accepted = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> finished = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    @Test
+    void driveOrdersThroughTheSaga() throws Exception {
+        try (SagaCluster cluster = new SagaCluster()) {
+            List<String> products = prepareProducts(cluster.product().getBean(ProductRepository.class));
+            List<String> users = prepareUsers(cluster.user().getBean(UserRepository.class));
+            cluster.order().getBean("brokerChannel", AbstractSubscribableChannel.class)
+                    .addInterceptor(new StatusRecorder());
+            OrderService orderService = cluster.order().getBean(OrderService.class);
+
+//            the warmup orders go through the same path but are dropped before the measured run
+            drive(orderService, users, products, warmup);
+            accepted.clear();
+            finished.clear();
+            outcomes.clear();
+            rejected.set(0);
+
+            long start = System.nanoTime();
+            int total = drive(orderService, users, products, duration);
+            long end = finished.values().stream().mapToLong(Long::longValue).max().orElse(System.nanoTime());
+
+            Map<String, Object> result = summarize(total, end - start);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(report, result);
+            System.out.println("Saga throughput: " + result);
+            System.out.println("Wrote saga report to " + report);
+
+            assertThat(rejected).as("orders rejected at creation").hasValue(0);
+            assertThat(finished.keySet()).as("orders that reached a final state")
+                    .containsAll(accepted.keySet());
+        }
+    }
+
+    /** Submits orders at the configured rate for {@code period}, then waits for them to settle. */
+    private int drive(OrderService orderService, List<String> users, List<String> products, Duration period)
+            throws InterruptedException {
+        int total = (int) (rate * period.toMillis() / 1000);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+//        open loop: arrivals follow the clock, not completions, so a slow saga shows up as latency
+        try (ExecutorService submitters = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                LockSupport.parkNanos(start + i * interval - System.nanoTime());
+                OrderRequest request = new OrderRequest(
+                        users.get(i % users.size()), products.get(i % products.size()), "1");
+                submitters.execute(() -> submit(orderService, request));
+            }
+        }
+
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (finished.size() < accepted.size() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        return total;
+    }
+
+    private void submit(OrderService orderService, OrderRequest request) {
+        try {
+            UUID orderId = orderService.createOrder(request);
+            accepted.put(orderId, System.nanoTime());
+        } catch (RuntimeException e) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    private List<String> prepareProducts(ProductRepository productRepository) {
+        List<Product> products = productRepository.findAll();
+        if (restock) {
+            products.forEach(product -> product.setQuantity(Integer.MAX_VALUE / 2));
+            productRepository.saveAll(products);
+        }
+        return products.stream().map(Product::getName).toList();
+    }
+
+    private List<String> prepareUsers(UserRepository userRepository) {
+        List<User> users = userRepository.findAll();
+        if (restock) {
+            users.forEach(user -> user.setBalance(1e12));
+            userRepository.saveAll(users);
+        }
+        return users.stream().map(User::getUsername).toList();
+    }
+
+    private Map<String, Object> summarize(int submitted, long elapsedNanos) {
+        long[] latencies = finished.entrySet().stream()
+                .filter(entry -> accepted.containsKey(entry.getKey()))
+//                the notification can beat createOrder's return to this thread; count that as zero
+                .mapToLong(entry -> Math.max(0, entry.getValue() - accepted.get(entry.getKey())))
+                .sorted()
+                .toArray();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("targetRate", rate);
+        result.put("durationSeconds", duration.toSeconds());
+        result.put("submitted", submitted);
+        result.put("accepted", accepted.size());
+        result.put("rejected", rejected.get());
+        result.put("finished", latencies.length);
+        outcomes.forEach((status, count) -> result.put(status.toLowerCase(), count.get()));
+        result.put("ordersPerSecond", Math.round(latencies.length * 1e10 / elapsedNanos) / 10.0);
+        result.put("p50Millis", percentileMillis(latencies, 0.50));
+        result.put("p99Millis", percentileMillis(latencies, 0.99));
+        result.put("maxMillis", percentileMillis(latencies, 1.0));
+        return result;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return Math.round(sorted[Math.max(0, index)] / 100_000.0) / 10.0;
+    }
+
+    /** Timestamps every final status order-service pushes to its STOMP broker. */
+    private class StatusRecorder implements ChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            if (destination != null && destination.startsWith(STATUS_DESTINATION)
+                    && message.getPayload() instanceof byte[] payload) {
+                long now = System.nanoTime();
+                try {
+                    Map<?, ?> update = objectMapper.readValue(payload, Map.class);
+                    UUID orderId = UUID.fromString((String) update.get("orderId"));
+                    if (finished.putIfAbsent(orderId, now) == null) {
+                        outcomes.computeIfAbsent((String) update.get("status"), status -> new AtomicInteger())
+                                .incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unreadable order status update", e);
+                }
+            }
+            return message;
+        }
+    }
+}
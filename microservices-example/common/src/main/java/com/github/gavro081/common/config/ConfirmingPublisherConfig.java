@@ -0,0 +1,29 @@
+package com.github.gavro081.common.config;
+
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.github.gavro081.common.publisher.PublisherProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Provides the {@link ConfirmingPublisher}. It is created on first use, so a service that never
+ * publishes through it doesn't need publisher confirms turned on.
+ */
+@Configuration
+@EnableConfigurationProperties(PublisherProperties.class)
+public class ConfirmingPublisherConfig {
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    public ConfirmingPublisher confirmingPublisher(RabbitTemplate rabbitTemplate, PublisherProperties properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ConfirmingPublisher(rabbitTemplate, properties, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.gavro081.common.config;
+
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.DirectRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * In partitioned mode, swaps the default listener container for the direct one, which gives
+ * every queue of a listener its own consumer (spring.rabbitmq.listener.direct.consumers-per-queue)
+ * so the partitions are worked in parallel. The simple container would drain all of a listener's
+ * partitions from one consumer thread. Without partitions each listener has a single queue, the
+ * two containers behave the same, and Spring Boot's default is left alone.
+ */
+@AutoConfiguration(before = RabbitAutoConfiguration.class)
+@ConditionalOnExpression("${" + RabbitMQConfig.PARTITIONS_PROPERTY + ":0} > 0")
+public class PartitionedListenerConfig {
+    @Bean(name = "rabbitListenerContainerFactory")
+    DirectRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            DirectRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        DirectRabbitListenerContainerFactory factory = new DirectRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        return factory;
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.gavro081.common.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the order.created -> products_queue and inventory.reserved -> users_queue bindings
+ * with N partition queues each, behind an x-consistent-hash exchange that hashes the
+ * {@link RabbitMQConfig#PARTITION_KEY_HEADER}. Every partition queue allows a single active
+ * consumer, so events for one key are delivered in order no matter how many instances run.
+ * Needs the rabbitmq_consistent_hash_exchange plugin.
+ * <p>
+ * That order only holds while messages succeed. A failed products message is moved to a delay
+ * tier and the partition carries on, so the retry is handled after newer events for the same
+ * key. Consumers must not rely on strict per-key order across failures; the reservation path
+ * doesn't, since every event is checked on its own against locked rows.
+ */
+@Configuration
+@ConditionalOnExpression("${" + RabbitMQConfig.PARTITIONS_PROPERTY + ":0} > 0")
+public class PartitionedTopologyConfig {
+    private final int partitions;
+
+    public PartitionedTopologyConfig(@Value("${" + RabbitMQConfig.PARTITIONS_PROPERTY + "}") int partitions) {
+        this.partitions = partitions;
+    }
+
+    @Bean
+    Declarables productsPartitions(TopicExchange exchange) {
+        Declarables declarables = partitionedLane(RabbitMQConfig.PRODUCTS_QUEUE, "order.created", exchange,
+                RabbitMQConfig.DEAD_LETTER_EXCHANGE, "dlq.products");
+//        failed partitioned messages come back through the hash exchange, so they return to their own partition
+        List<Declarable> retryQueues = new ArrayList<>();
+        String partitionExchange = RabbitMQConfig.partitionExchange(RabbitMQConfig.PRODUCTS_QUEUE);
+        for (Duration delay : RabbitMQConfig.PRODUCTS_RETRY_DELAYS) {
+            retryQueues.add(QueueBuilder.durable(RabbitMQConfig.retryQueue(partitionExchange, delay))
+                    .ttl((int) delay.toMillis())
+                    .deadLetterExchange(partitionExchange)
+                    .build());
+        }
+        retryQueues.addAll(declarables.getDeclarables());
+        return new Declarables(retryQueues);
+    }
+
+    @Bean
+    Declarables usersPartitions(TopicExchange exchange) {
+        return partitionedLane(RabbitMQConfig.USERS_QUEUE, "inventory.reserved", exchange,
+                "", RabbitMQConfig.USERS_QUEUE_DLQ);
+    }
+
+//    partitions dead-letter exactly like the queue they replace
+    private Declarables partitionedLane(String queue, String routingKey, TopicExchange exchange,
+                                        String deadLetterExchange, String deadLetterRoutingKey) {
+        List<Declarable> declarables = new ArrayList<>();
+        CustomExchange partitionExchange = new CustomExchange(RabbitMQConfig.partitionExchange(queue),
+                "x-consistent-hash", true, false, Map.of("hash-header", RabbitMQConfig.PARTITION_KEY_HEADER));
+        declarables.add(partitionExchange);
+        declarables.add(BindingBuilder.bind(partitionExchange).to(exchange).with(routingKey));
+        for (int i = 0; i < partitions; i++) {
+            Queue partition = QueueBuilder.durable(RabbitMQConfig.partitionQueue(queue, i))
+                    .singleActiveConsumer()
+                    .deadLetterExchange(deadLetterExchange)
+                    .deadLetterRoutingKey(deadLetterRoutingKey)
+                    .build();
+            declarables.add(partition);
+//            for the consistent hash exchange the binding key is the partition's weight
+            declarables.add(new Binding(partition.getName(), Binding.DestinationType.QUEUE,
+                    partitionExchange.getName(), "1", null));
+        }
+        return new Declarables(declarables);
+    }
+}
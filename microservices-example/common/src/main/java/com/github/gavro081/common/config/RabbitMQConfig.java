@@ -1,14 +1,22 @@
 package com.github.gavro081.common.config;
 
+import com.github.gavro081.common.converter.BinaryMessageConverter;
+import com.github.gavro081.common.converter.NegotiatingMessageConverter;
 import com.github.gavro081.common.events.*;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.support.converter.DefaultClassMapper;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -20,6 +28,38 @@ public class RabbitMQConfig {
     public static final String PRODUCTS_QUEUE = "products_queue";
     public static final String USERS_QUEUE = "users_queue";
     public static final String PRODUCTS_QUEUE_DLQ = "products_queue_dlq";
+//    debits the user service rejected; reached through the default exchange, since products_queue_dlq takes every dead_letter_exchange key
+    public static final String USERS_QUEUE_DLQ = "users_queue_dlq";
+//    compensations get their own lane so a backlog of new orders can't delay inventory release
+    public static final String PRODUCTS_COMPENSATION_QUEUE = "products_compensation_queue";
+
+//    publishes the ConfirmingPublisher couldn't get confirmed after maxAttempts, with where they were headed
+    public static final String PUBLISHER_PARKING_QUEUE = "publisher_parking_queue";
+    public static final String ORIGINAL_EXCHANGE_HEADER = "x-original-exchange";
+    public static final String ORIGINAL_ROUTING_KEY_HEADER = "x-original-routing-key";
+
+//    set from PartitionKeyed events; the partition exchanges hash on it
+    public static final String PARTITION_KEY_HEADER = "x-partition-key";
+//    0 keeps one queue per service; otherwise see PartitionedTopologyConfig. Must match across all services.
+    public static final String PARTITIONS_PROPERTY = "microservices.messaging.partitions";
+    public static final String PRODUCTS_LISTENER_QUEUES = "#{T(com.github.gavro081.common.config.RabbitMQConfig)"
+            + ".listenerQueues('" + PRODUCTS_QUEUE + "', '${" + PARTITIONS_PROPERTY + ":0}')}";
+    public static final String USERS_LISTENER_QUEUES = "#{T(com.github.gavro081.common.config.RabbitMQConfig)"
+            + ".listenerQueues('" + USERS_QUEUE + "', '${" + PARTITIONS_PROPERTY + ":0}')}";
+
+//    epoch millis stamped on every publish; the AMQP timestamp property only has second precision
+    public static final String PUBLISHED_AT_HEADER = "x-published-at";
+
+//    failed products_queue / products_compensation_queue messages wait out each delay tier in turn before going to products_queue_dlq
+    public static final String RETRY_ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String DEAD_LETTERED_AT_HEADER = "x-dead-lettered-at";
+    public static final Duration[] PRODUCTS_RETRY_DELAYS = {
+            Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(60)
+    };
+
+//    published whenever a product or user row changes, so lookup caches can drop stale entries
+    public static final String PRODUCT_CHANGED_KEY = "product.changed";
+    public static final String USER_CHANGED_KEY = "user.changed";
 
 //    Exchange: The central "post office" where you send all order-related events.
 //    Queue: A specific "mailbox" for a service.
@@ -47,9 +87,20 @@ public class RabbitMQConfig {
                 .withArgument("x-dead-letter-routing-key", "dlq.products")
                 .build();
     }
+    @Bean
+    Queue productsCompensationQueue(){
+        return QueueBuilder.durable(PRODUCTS_COMPENSATION_QUEUE)
+                .withArgument("x-dead-letter-exchange", DEAD_LETTER_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", "dlq.products")
+                .build();
+    }
+
     @Bean
     Queue usersQueue(){
-        return new Queue(USERS_QUEUE, true);
+        return QueueBuilder.durable(USERS_QUEUE)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(USERS_QUEUE_DLQ)
+                .build();
     }
 
     @Bean
@@ -58,12 +109,84 @@ public class RabbitMQConfig {
     }
 
     @Bean
+    Queue usersDlq(){
+        return new Queue(USERS_QUEUE_DLQ, true);
+    }
+
+    @Bean
+    Queue publisherParkingQueue(){
+        return new Queue(PUBLISHER_PARKING_QUEUE, true);
+    }
+
+    /**
+     * One queue per retry tier and product-service queue. Nothing consumes them: a message sits
+     * there for the tier's TTL and is then dead-lettered through the default exchange straight
+     * back to the queue it failed on, so the retry only reaches product-service and no consumer
+     * thread waits for it.
+     */
+    @Bean
+    Declarables productsRetryQueues(){
+        List<Declarable> queues = new ArrayList<>();
+        for (String queue : List.of(PRODUCTS_QUEUE, PRODUCTS_COMPENSATION_QUEUE)) {
+            for (Duration delay : PRODUCTS_RETRY_DELAYS) {
+                queues.add(QueueBuilder.durable(retryQueue(queue, delay))
+                        .ttl((int) delay.toMillis())
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(queue)
+                        .build());
+            }
+        }
+        return new Declarables(queues);
+    }
+
+    public static String retryQueue(String queue, Duration delay) {
+        return queue + ".retry." + delay.toSeconds() + "s";
+    }
+
+    /**
+     * The retry tier for a message consumed from {@code consumerQueue}. Partition queues share
+     * one set of tiers that routes back through the partition exchange.
+     */
+    public static String retryQueueFor(String consumerQueue, Duration delay) {
+        int partitionSuffix = consumerQueue.lastIndexOf(".p");
+        if (partitionSuffix > 0 && consumerQueue.substring(partitionSuffix + 2).chars().allMatch(Character::isDigit)) {
+            return retryQueue(partitionExchange(consumerQueue.substring(0, partitionSuffix)), delay);
+        }
+        return retryQueue(consumerQueue, delay);
+    }
+
+    public static String partitionExchange(String queue) {
+        return queue + ".partitions";
+    }
+
+    public static String partitionQueue(String queue, int partition) {
+        return queue + ".p" + partition;
+    }
+
+    /**
+     * The queues a service listens on: its own queue, or each of its partition queues.
+     */
+    public static String[] listenerQueues(String queue, String partitions) {
+        int count = Integer.parseInt(partitions);
+        if (count <= 0) {
+            return new String[]{queue};
+        }
+        String[] queues = new String[count];
+        for (int i = 0; i < count; i++) {
+            queues[i] = partitionQueue(queue, i);
+        }
+        return queues;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = PARTITIONS_PROPERTY, havingValue = "0", matchIfMissing = true)
     Binding productsBinding(Queue productsQueue, TopicExchange exchange) {
 //         product service needs to know when an order is created so it can process it
         return BindingBuilder.bind(productsQueue).to(exchange).with("order.created");
     }
 
     @Bean
+    @ConditionalOnProperty(name = PARTITIONS_PROPERTY, havingValue = "0", matchIfMissing = true)
     Binding usersBinding(Queue usersQueue, TopicExchange exchange) {
 //         user service needs to know when inventory is reserved so it could deduct balance
         return BindingBuilder.bind(usersQueue).to(exchange).with("inventory.reserved");
@@ -80,9 +203,9 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    Binding productsCompensationBinding(Queue productsQueue, TopicExchange exchange) {
+    Binding productsCompensationBinding(Queue productsCompensationQueue, TopicExchange exchange) {
 //     products-service needs to know about payment failure to compensate
-        return BindingBuilder.bind(productsQueue).to(exchange).with("balance.failed");
+        return BindingBuilder.bind(productsCompensationQueue).to(exchange).with("balance.failed");
     }
 
     @Bean
@@ -91,7 +214,28 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    RabbitTemplateCustomizer publishedAtCustomizer() {
+        return template -> template.addBeforePublishPostProcessors(message -> {
+//            retries keep the time of the first publish; DLQ replays restamp it before publishing
+            MessageProperties properties = message.getMessageProperties();
+            if (properties.getHeader(PUBLISHED_AT_HEADER) == null) {
+                properties.setHeader(PUBLISHED_AT_HEADER, System.currentTimeMillis());
+            }
+            return message;
+        });
+    }
+
+    /**
+     * Consumers read JSON and binary ({@link BinaryMessageConverter}) side by side, keyed on the
+     * content type; publishers write binary once microservices.messaging.binary-publishing is on.
+     */
+    @Bean
+    public MessageConverter messageConverter(
+            @Value("${microservices.messaging.binary-publishing:false}") boolean binaryPublishing) {
+        return new NegotiatingMessageConverter(jsonMessageConverter(), new BinaryMessageConverter(), binaryPublishing);
+    }
+
+    public static Jackson2JsonMessageConverter jsonMessageConverter() {
         Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
         DefaultClassMapper classMapper = new DefaultClassMapper();
 
@@ -105,6 +249,8 @@ public class RabbitMQConfig {
         idClassMapping.put("com.github.gavro081.common.events.InventoryReservationFailedEvent", InventoryReservationFailedEvent.class);
         idClassMapping.put("com.github.gavro081.common.events.BalanceDebitedEvent", BalanceDebitedEvent.class);
         idClassMapping.put("com.github.gavro081.common.events.BalanceDebitFailedEvent", BalanceDebitFailedEvent.class);
+        idClassMapping.put("com.github.gavro081.common.events.ProductChangedEvent", ProductChangedEvent.class);
+        idClassMapping.put("com.github.gavro081.common.events.UserChangedEvent", UserChangedEvent.class);
 
         classMapper.setIdClassMapping(idClassMapping);
         converter.setClassMapper(classMapper);
@@ -0,0 +1,112 @@
+package com.github.gavro081.common.converter;
+
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Reads what {@link BinaryEventWriter} wrote, in the same order.
+ */
+public class BinaryEventReader {
+    private final byte[] buffer;
+    private int position;
+
+    BinaryEventReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public long readVarLong() {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = next();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new MessageConversionException("Malformed varint at offset " + position);
+    }
+
+    public int readInt() {
+        return (int) readVarLong();
+    }
+
+    public double readDouble() {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (next() & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public UUID readUuid() {
+        if (!readPresence()) {
+            return null;
+        }
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < 8; i++) {
+            most = (most << 8) | (next() & 0xFF);
+        }
+        for (int i = 0; i < 8; i++) {
+            least = (least << 8) | (next() & 0xFF);
+        }
+        return new UUID(most, least);
+    }
+
+    public Instant readInstant() {
+        return readPresence() ? Instant.ofEpochSecond(readVarLong(), readVarLong()) : null;
+    }
+
+    public Long readLong() {
+        return readPresence() ? readVarLong() : null;
+    }
+
+    public String readString() {
+        if (!readPresence()) {
+            return null;
+        }
+        int length = (int) readVarLong();
+        if (length < 0 || position + length > buffer.length) {
+            throw new MessageConversionException("String of " + length + " bytes overruns the message");
+        }
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public String readNumericString() {
+        return switch ((int) readVarLong()) {
+            case 0 -> null;
+            case 1 -> Long.toString(readVarLong());
+            case 2 -> readString();
+            default -> throw new MessageConversionException("Unknown numeric string tag at offset " + position);
+        };
+    }
+
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        long ordinal = readVarLong();
+        if (ordinal == 0) {
+            return null;
+        }
+        E[] constants = type.getEnumConstants();
+        if (ordinal < 0 || ordinal > constants.length) {
+            throw new MessageConversionException("Unknown " + type.getSimpleName() + " ordinal " + (ordinal - 1)
+                    + " at offset " + position);
+        }
+        return constants[(int) ordinal - 1];
+    }
+
+    private boolean readPresence() {
+        return next() != 0;
+    }
+
+    private byte next() {
+        if (position >= buffer.length) {
+            throw new MessageConversionException("Unexpected end of message at offset " + position);
+        }
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.gavro081.common.converter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Growable output buffer for {@link BinaryMessageConverter}. Integers are zigzag varints, UUIDs
+ * are 16 raw bytes, and nullable values are prefixed with a presence byte. Instances are reused
+ * per thread, so {@link #toByteArray()} copies the written bytes out.
+ */
+public class BinaryEventWriter {
+    private byte[] buffer;
+    private int position;
+
+    BinaryEventWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    void reset() {
+        position = 0;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[position++] = (byte) zigzag;
+    }
+
+    public void writeInt(int value) {
+        writeVarLong(value);
+    }
+
+    public void writeDouble(double value) {
+        ensureCapacity(8);
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    public void writeUuid(UUID value) {
+        if (writePresence(value)) {
+            ensureCapacity(16);
+            long most = value.getMostSignificantBits();
+            long least = value.getLeastSignificantBits();
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (most >>> shift);
+            }
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (least >>> shift);
+            }
+        }
+    }
+
+    public void writeInstant(Instant value) {
+        if (writePresence(value)) {
+            writeVarLong(value.getEpochSecond());
+            writeVarLong(value.getNano());
+        }
+    }
+
+    public void writeLong(Long value) {
+        if (writePresence(value)) {
+            writeVarLong(value);
+        }
+    }
+
+    public void writeString(String value) {
+        if (writePresence(value)) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+    }
+
+    /**
+     * Writes ids that the events carry as strings ("42") as a varint, falling back to the
+     * string for anything that doesn't round-trip through a long.
+     */
+    public void writeNumericString(String value) {
+        if (value != null && isCanonicalLong(value)) {
+            writeVarLong(1);
+            writeVarLong(Long.parseLong(value));
+        } else if (value != null) {
+            writeVarLong(2);
+            writeString(value);
+        } else {
+            writeVarLong(0);
+        }
+    }
+
+    public <E extends Enum<E>> void writeEnum(E value) {
+        writeVarLong(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private boolean writePresence(Object value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (value == null ? 0 : 1);
+        return value != null;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+    private static boolean isCanonicalLong(String value) {
+        int length = value.length();
+        if (length == 0 || length > 19) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == length || (value.charAt(start) == '0' && length > start + 1)) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return !"-0".equals(value);
+    }
+}
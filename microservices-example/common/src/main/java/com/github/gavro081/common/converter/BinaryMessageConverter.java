@@ -0,0 +1,62 @@
+package com.github.gavro081.common.converter;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Compact binary encoding for the events in common.events: a varint type id from
+ * {@link EventSchemas} followed by the event's fields, with no type header and no field names.
+ */
+public class BinaryMessageConverter implements MessageConverter {
+    public static final String CONTENT_TYPE = "application/x-event-binary";
+    private static final int INITIAL_BUFFER_SIZE = 256;
+//    a buffer that grew past this for one odd message is not kept around
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    private final ThreadLocal<BinaryEventWriter> buffers = ThreadLocal.withInitial(() -> new BinaryEventWriter(INITIAL_BUFFER_SIZE));
+
+    public boolean canConvert(Object object) {
+        return object != null && EventSchemas.forType(object.getClass()) != null;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        EventSchema<?> schema = object == null ? null : EventSchemas.forType(object.getClass());
+        if (schema == null) {
+            throw new MessageConversionException("No binary schema for " + (object == null ? "null" : object.getClass().getName()));
+        }
+        BinaryEventWriter out = buffers.get();
+        out.reset();
+        out.writeVarLong(schema.typeId());
+        schema.write(object, out);
+        byte[] body = out.toByteArray();
+        if (out.capacity() > MAX_POOLED_BUFFER_SIZE) {
+            buffers.remove();
+        }
+
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        BinaryEventReader in = new BinaryEventReader(message.getBody());
+        int typeId = (int) in.readVarLong();
+        EventSchema<?> schema = EventSchemas.forId(typeId);
+        if (schema == null) {
+            throw new MessageConversionException("Unknown binary event type " + typeId);
+        }
+        return schema.reader().apply(in);
+    }
+
+    /**
+     * The event class a binary body decodes to, without decoding it.
+     */
+    public static Class<?> eventType(byte[] body) {
+        EventSchema<?> schema = EventSchemas.forId((int) new BinaryEventReader(body).readVarLong());
+        return schema == null ? null : schema.type();
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.gavro081.common.converter;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * How one event type is laid out on the wire. {@code typeId} is written ahead of the fields and
+ * must never be reused for a different type.
+ */
+public record EventSchema<T>(
+        int typeId,
+        Class<T> type,
+        BiConsumer<T, BinaryEventWriter> writer,
+        Function<BinaryEventReader, T> reader
+) {
+    void write(Object event, BinaryEventWriter out) {
+        writer.accept(type.cast(event), out);
+    }
+}
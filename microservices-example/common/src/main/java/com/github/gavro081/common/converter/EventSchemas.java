@@ -0,0 +1,149 @@
+package com.github.gavro081.common.converter;
+
+import com.github.gavro081.common.enums.DebitFailureReason;
+import com.github.gavro081.common.enums.ReservationFailureReason;
+import com.github.gavro081.common.events.*;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire layouts for every event in common.events. Fields are written in declaration order; a new
+ * field can only be appended, and enum constants can only be appended, because enums travel as
+ * ordinals.
+ */
+public final class EventSchemas {
+    private static final List<EventSchema<?>> SCHEMAS = List.of(
+            new EventSchema<>(1, OrderCreatedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeInstant(event.getTimestamp());
+                out.writeUuid(event.getOrderId());
+                out.writeNumericString(event.getProductId());
+                out.writeNumericString(event.getUserId());
+                out.writeInt(event.getQuantity());
+                out.writeString(event.getUsername());
+            }, in -> {
+                var eventId = in.readUuid();
+                var timestamp = in.readInstant();
+                var event = new OrderCreatedEvent(in.readUuid(), in.readNumericString(), in.readNumericString(),
+                        in.readInt(), in.readString());
+                restore(event, "timestamp", timestamp);
+                return restore(event, "eventId", eventId);
+            }),
+            new EventSchema<>(2, InventoryReservedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeUuid(event.getOrderId());
+                out.writeNumericString(event.getUserId());
+                out.writeNumericString(event.getProductId());
+                out.writeString(event.getProductName());
+                out.writeInt(event.getQuantity());
+                out.writeDouble(event.getUnitPrice());
+                out.writeDouble(event.getTotalPrice());
+                out.writeString(event.getUsername());
+            }, in -> {
+                var eventId = in.readUuid();
+                return restore(new InventoryReservedEvent(in.readUuid(), in.readNumericString(), in.readNumericString(),
+                        in.readString(), in.readInt(), in.readDouble(), in.readDouble(), in.readString()), "eventId", eventId);
+            }),
+            new EventSchema<>(3, InventoryReservationFailedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeUuid(event.getOrderId());
+                out.writeNumericString(event.getProductId());
+                out.writeEnum(event.getReason());
+                out.writeString(event.getMessage());
+                out.writeString(event.getUsername());
+            }, in -> {
+                var eventId = in.readUuid();
+                return restore(new InventoryReservationFailedEvent(in.readUuid(), in.readNumericString(),
+                        in.readEnum(ReservationFailureReason.class), in.readString(), in.readString()), "eventId", eventId);
+            }),
+            new EventSchema<>(4, BalanceDebitedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeUuid(event.getOrderId());
+                out.writeLong(event.getUserId());
+                out.writeNumericString(event.getProductId());
+                out.writeDouble(event.getTotalPrice());
+                out.writeString(event.getProductName());
+                out.writeString(event.getUsername());
+            }, in -> {
+                var eventId = in.readUuid();
+                return restore(new BalanceDebitedEvent(in.readUuid(), in.readLong(), in.readNumericString(),
+                        in.readDouble(), in.readString(), in.readString()), "eventId", eventId);
+            }),
+            new EventSchema<>(5, BalanceDebitFailedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeUuid(event.getOrderId());
+                out.writeNumericString(event.getProductId());
+                out.writeInt(event.getQuantity());
+                out.writeEnum(event.getReason());
+                out.writeString(event.getMessage());
+                out.writeString(event.getUsername());
+            }, in -> {
+                var eventId = in.readUuid();
+                return restore(new BalanceDebitFailedEvent(in.readUuid(), in.readNumericString(), in.readInt(),
+                        in.readEnum(DebitFailureReason.class), in.readString(), in.readString()), "eventId", eventId);
+            }),
+            new EventSchema<>(6, ProductChangedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeLong(event.getProductId());
+                out.writeString(event.getProductName());
+            }, in -> {
+                var eventId = in.readUuid();
+                return restore(new ProductChangedEvent(in.readLong(), in.readString()), "eventId", eventId);
+            }),
+            new EventSchema<>(7, UserChangedEvent.class, (event, out) -> {
+                out.writeUuid(event.getEventId());
+                out.writeLong(event.getUserId());
+                out.writeString(event.getUsername());
+            }, in -> {
+                var eventId = in.readUuid();
+                return restore(new UserChangedEvent(in.readLong(), in.readString()), "eventId", eventId);
+            })
+    );
+
+    private static final Map<Integer, EventSchema<?>> BY_ID = new HashMap<>();
+    private static final Map<Class<?>, EventSchema<?>> BY_TYPE = new HashMap<>();
+    private static final Map<String, Field> GENERATED_FIELDS = new HashMap<>();
+
+    static {
+        for (EventSchema<?> schema : SCHEMAS) {
+            BY_ID.put(schema.typeId(), schema);
+            BY_TYPE.put(schema.type(), schema);
+        }
+        try {
+            for (EventSchema<?> schema : SCHEMAS) {
+                Field eventId = schema.type().getDeclaredField("eventId");
+                eventId.setAccessible(true);
+                GENERATED_FIELDS.put(schema.type().getName() + ".eventId", eventId);
+            }
+            Field timestamp = OrderCreatedEvent.class.getDeclaredField("timestamp");
+            timestamp.setAccessible(true);
+            GENERATED_FIELDS.put(OrderCreatedEvent.class.getName() + ".timestamp", timestamp);
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private EventSchemas() {
+    }
+
+    public static EventSchema<?> forId(int typeId) {
+        return BY_ID.get(typeId);
+    }
+
+    public static EventSchema<?> forType(Class<?> type) {
+        return BY_TYPE.get(type);
+    }
+
+//    eventId and timestamp are assigned by field initializers the constructors don't take, so they are set afterwards
+    private static <T> T restore(T event, String field, Object value) {
+        try {
+            GENERATED_FIELDS.get(event.getClass().getName() + "." + field).set(event, value);
+            return event;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot restore " + field + " on " + event.getClass().getSimpleName(), e);
+        }
+    }
+}
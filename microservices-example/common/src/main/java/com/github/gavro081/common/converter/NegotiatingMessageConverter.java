@@ -0,0 +1,37 @@
+package com.github.gavro081.common.converter;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.PartitionKeyed;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Reads JSON or binary depending on each message's content type, and writes binary only when
+ * {@code binaryPublishing} is on. Rolling out binary is therefore two steps: deploy everywhere
+ * so every consumer can read it, then turn publishing on.
+ */
+public class NegotiatingMessageConverter extends ContentTypeDelegatingMessageConverter {
+    private final BinaryMessageConverter binaryConverter;
+    private final boolean binaryPublishing;
+
+    public NegotiatingMessageConverter(MessageConverter jsonConverter, BinaryMessageConverter binaryConverter,
+                                       boolean binaryPublishing) {
+        super(jsonConverter);
+        addDelegate(BinaryMessageConverter.CONTENT_TYPE, binaryConverter);
+        this.binaryConverter = binaryConverter;
+        this.binaryPublishing = binaryPublishing;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (object instanceof PartitionKeyed keyed && keyed.partitionKey() != null) {
+            messageProperties.setHeader(RabbitMQConfig.PARTITION_KEY_HEADER, keyed.partitionKey());
+        }
+        if (binaryPublishing && binaryConverter.canConvert(object)) {
+            return binaryConverter.toMessage(object, messageProperties);
+        }
+        return super.toMessage(object, messageProperties);
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.gavro081.common.dedupe;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-memory front for the processed_events tables: a small LRU of ids that were recently
+ * committed, backed by a Bloom filter of every id known to the table. It only ever answers
+ * "certainly new" or "certainly seen" when that is safe; everything else is
+ * {@link Verdict#UNKNOWN} and has to be confirmed against the database, which stays the
+ * source of truth.
+ * <p>
+ * A Bloom filter can't forget, so purged rows would otherwise keep matching (and cost a lookup)
+ * forever; {@link #rebuild} swaps in a filter seeded from the table as it is now.
+ */
+public class ProcessedEventFilter {
+    public enum Verdict {
+        /** committed recently by this instance */
+        DUPLICATE,
+        /** not in the Bloom filter, so not in the table */
+        NEW,
+        /** the Bloom filter matched: either a duplicate or a false positive */
+        UNKNOWN
+    }
+
+    private record Key(UUID id, String context) {}
+
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Set<Key> recent;
+    private volatile BloomFilter bloomFilter;
+//    set while a rebuild is seeding, so ids committed meanwhile land in the new filter too
+    private volatile BloomFilter rebuilding;
+
+    public ProcessedEventFilter(long expectedInsertions, double falsePositiveRate, int recentCapacity) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        this.recent = Collections.newSetFromMap(Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                        return size() > recentCapacity;
+                    }
+                }));
+    }
+
+    public Verdict check(UUID id, String context) {
+        if (recent.contains(new Key(id, context))) {
+            return Verdict.DUPLICATE;
+        }
+        return bloomFilter.mightContain(hash1(id, context), hash2(id, context)) ? Verdict.UNKNOWN : Verdict.NEW;
+    }
+
+    /**
+     * Records an id whose processed_events row has committed.
+     */
+    public void record(UUID id, String context) {
+        recent.add(new Key(id, context));
+        seed(id, context);
+    }
+
+    /**
+     * Adds an id that is already in the table to the Bloom filter only, e.g. while rebuilding at startup.
+     */
+    public void seed(UUID id, String context) {
+//        read before the live filter: if no rebuild is seeding yet, its scan starts later and sees the row
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(hash1(id, context), hash2(id, context));
+        }
+        bloomFilter.put(hash1(id, context), hash2(id, context));
+    }
+
+    /**
+     * Replaces the Bloom filter with a new one holding the ids {@code source} passes to its
+     * callback, normally a scan of the table. The old filter keeps answering until the scan is
+     * done. Ids recorded during the scan go into both filters, so a row that commits after the
+     * scan's snapshot is not missed. Returns how many ids the scan supplied.
+     */
+    public synchronized long rebuild(Consumer<BiConsumer<UUID, String>> source) {
+        BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveRate);
+        long[] seeded = {0};
+        rebuilding = next;
+        try {
+            source.accept((id, context) -> {
+                next.put(hash1(id, context), hash2(id, context));
+                seeded[0]++;
+            });
+            bloomFilter = next;
+        } finally {
+            rebuilding = null;
+        }
+        return seeded[0];
+    }
+
+    private static long hash1(UUID id, String context) {
+        return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits() + context.hashCode()));
+    }
+
+    private static long hash2(UUID id, String context) {
+        return mix(id.getLeastSignificantBits() ^ mix(id.getMostSignificantBits() - context.hashCode())) | 1;
+    }
+
+//    SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
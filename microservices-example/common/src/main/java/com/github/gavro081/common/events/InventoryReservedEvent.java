@@ -11,7 +11,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @Getter @Setter
 @Builder
-public class InventoryReservedEvent implements Serializable {
+public class InventoryReservedEvent implements Serializable, PartitionKeyed {
     private final UUID eventId = UUID.randomUUID();
 
     private final UUID orderId;
@@ -22,4 +22,10 @@ public class InventoryReservedEvent implements Serializable {
     private final double unitPrice;
     private final double totalPrice;
     private final String username;
+
+//    debits for the same user are applied in order and never contend across partitions
+    @Override
+    public String partitionKey() {
+        return userId;
+    }
 }
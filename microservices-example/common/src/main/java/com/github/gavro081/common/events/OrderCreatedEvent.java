@@ -11,7 +11,7 @@ import java.util.UUID;
 
 @AllArgsConstructor
 @Getter @Setter
-public class OrderCreatedEvent implements Serializable {
+public class OrderCreatedEvent implements Serializable, PartitionKeyed {
     private final UUID eventId = UUID.randomUUID();
     private final Instant timestamp = Instant.now();
 
@@ -21,4 +21,9 @@ public class OrderCreatedEvent implements Serializable {
     private final int quantity;
     private final String username;
 
+//    reservations for the same product are applied in order and never contend across partitions
+    @Override
+    public String partitionKey() {
+        return productId;
+    }
 }
@@ -0,0 +1,9 @@
+package com.github.gavro081.common.events;
+
+/**
+ * An event whose order matters relative to other events with the same key. The converter copies
+ * the key into the partition header, so the same key always lands on the same partition queue.
+ */
+public interface PartitionKeyed {
+    String partitionKey();
+}
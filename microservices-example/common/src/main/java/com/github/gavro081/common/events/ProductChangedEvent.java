@@ -0,0 +1,16 @@
+package com.github.gavro081.common.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@AllArgsConstructor
+@Getter
+public class ProductChangedEvent implements Serializable {
+    private final UUID eventId = UUID.randomUUID();
+
+    private final Long productId;
+    private final String productName;
+}
@@ -0,0 +1,16 @@
+package com.github.gavro081.common.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@AllArgsConstructor
+@Getter
+public class UserChangedEvent implements Serializable {
+    private final UUID eventId = UUID.randomUUID();
+
+    private final Long userId;
+    private final String username;
+}
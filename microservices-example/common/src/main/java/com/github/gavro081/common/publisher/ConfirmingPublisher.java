@@ -0,0 +1,295 @@
+package com.github.gavro081.common.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com.github.gavro081.common.config.RabbitMQConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes through the {@link RabbitTemplate} with correlated publisher confirms, without waiting
+ * for them: every publish is tracked by its correlation id and resolved when the broker's confirm
+ * arrives. Nacks, and publishes that see no confirm within the timeout, are sent again with
+ * backoff, so a broker hiccup delays an event rather than dropping it. Consumers dedupe by event
+ * id, which makes the occasional double send after a late confirm harmless.
+ * <p>
+ * A publish still unconfirmed after {@code maxAttempts} is parked on
+ * {@link RabbitMQConfig#PUBLISHER_PARKING_QUEUE}, with its original exchange and routing key in
+ * headers, and that send is retried at {@code maxBackoff} until the broker confirms it. Nothing is
+ * given up on while the process runs, but unconfirmed publishes live only in memory: if the
+ * process dies before their confirm, they are lost and the saga waiting on them stays stuck.
+ * <p>
+ * A batch passed to {@link #publishAll} goes out over one channel. Publishing fails fast with an
+ * {@link AmqpException} when {@code maxInFlight} publishes are already unconfirmed, so callers see
+ * backpressure instead of the backlog growing in memory.
+ */
+public class ConfirmingPublisher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConfirmingPublisher.class);
+
+    public record Outgoing(String exchange, String routingKey, Object payload) {}
+
+    private record Pending(String exchange, String routingKey, Message message, int attempt, long sentAt) {
+        Pending nextAttempt() {
+            return new Pending(exchange, routingKey, message, attempt + 1, 0);
+        }
+
+        boolean parked() {
+            return RabbitMQConfig.PUBLISHER_PARKING_QUEUE.equals(routingKey) && exchange.isEmpty();
+        }
+
+        Pending park() {
+            MessageProperties properties = message.getMessageProperties();
+            properties.setHeader(RabbitMQConfig.ORIGINAL_EXCHANGE_HEADER, exchange);
+            properties.setHeader(RabbitMQConfig.ORIGINAL_ROUTING_KEY_HEADER, routingKey);
+//            the default exchange routes straight to the queue named by the routing key
+            return new Pending("", RabbitMQConfig.PUBLISHER_PARKING_QUEUE, message, attempt + 1, 0);
+        }
+    }
+
+    private final RabbitTemplate rabbitTemplate;
+    private final PublisherProperties properties;
+    private final Semaphore permits;
+    private final Map<String, Pending> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Timer confirmLatency;
+    private final Counter acked;
+    private final Counter nacked;
+    private final Counter timedOut;
+    private final Counter retried;
+    private final Counter parked;
+
+    public ConfirmingPublisher(RabbitTemplate rabbitTemplate, PublisherProperties properties, MeterRegistry meterRegistry) {
+        if (!rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            throw new IllegalStateException(
+                    "ConfirmingPublisher needs spring.rabbitmq.publisher-confirm-type=correlated");
+        }
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.maxInFlight());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "publisher-confirms");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1, properties.confirmTimeout().toMillis() / 2);
+        scheduler.scheduleWithFixedDelay(this::sweepUnconfirmed, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("publisher.confirms.in.flight", permits, p -> properties.maxInFlight() - p.availablePermits())
+                .register(meterRegistry);
+        this.confirmLatency = Timer.builder("publisher.confirm.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.acked = meterRegistry.counter("publisher.confirms", "outcome", "ack");
+        this.nacked = meterRegistry.counter("publisher.confirms", "outcome", "nack");
+        this.timedOut = meterRegistry.counter("publisher.confirms", "outcome", "timeout");
+        this.retried = meterRegistry.counter("publisher.retries");
+        this.parked = meterRegistry.counter("publisher.parked");
+    }
+
+    public void publish(String exchange, String routingKey, Object payload) {
+        publishAll(List.of(new Outgoing(exchange, routingKey, payload)));
+    }
+
+    public void publishAll(List<Outgoing> batch) {
+        List<Pending> pending = new ArrayList<>(batch.size());
+        for (Outgoing outgoing : batch) {
+            Message message = rabbitTemplate.getMessageConverter().toMessage(outgoing.payload(), new MessageProperties());
+            pending.add(new Pending(outgoing.exchange(), outgoing.routingKey(), message, 1, 0));
+        }
+        sendAll(pending);
+    }
+
+    /**
+     * Sends an already built message, e.g. a failed delivery moved to a retry or dead-letter queue,
+     * and waits up to {@code confirmTimeout} for the broker to confirm it. Unlike the other
+     * publishes this one isn't tracked or resent: the caller still holds the delivery it copied
+     * and must not ack it unless this returns. A nack, or no confirm in time, throws an
+     * {@link AmqpException}.
+     */
+    public void sendAndAwaitConfirm(String exchange, String routingKey, Message message) {
+        CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+        long sentAt = System.nanoTime();
+        rabbitTemplate.send(exchange, routingKey, message, correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(properties.confirmTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for a publisher confirm", e);
+        } catch (ExecutionException e) {
+            throw new AmqpException("Publish to " + exchange + "/" + routingKey + " failed", e.getCause());
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            throw new AmqpException("No confirm for publish to " + exchange + "/" + routingKey
+                    + " within " + properties.confirmTimeout().toMillis() + "ms", e);
+        }
+        if (!confirm.isAck()) {
+            nacked.increment();
+            throw new AmqpException("Publish to " + exchange + "/" + routingKey + " was nacked (" + confirm.getReason() + ")");
+        }
+        acked.increment();
+        confirmLatency.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+    }
+
+    public int inFlight() {
+        return properties.maxInFlight() - permits.availablePermits();
+    }
+
+    private void sendAll(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() > properties.maxInFlight()) {
+            throw new IllegalArgumentException("Batch of " + batch.size()
+                    + " is larger than microservices.publisher.max-in-flight=" + properties.maxInFlight());
+        }
+        acquire(batch.size());
+        int[] sent = {0};
+        try {
+            if (batch.size() == 1) {
+                sendTracked(rabbitTemplate, batch.get(0));
+                sent[0] = 1;
+            } else {
+                rabbitTemplate.invoke(operations -> {
+                    for (Pending pending : batch) {
+                        sendTracked(operations, pending);
+                        sent[0]++;
+                    }
+                    return null;
+                });
+            }
+        } finally {
+//            publishes that never reached the channel won't be confirmed, so their slots are freed here
+            permits.release(batch.size() - sent[0]);
+        }
+    }
+
+    private void acquire(int count) {
+        try {
+            if (!permits.tryAcquire(count, properties.confirmTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new AmqpException("Timed out waiting for publisher confirms, " + inFlight() + " publishes in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for publisher confirms", e);
+        }
+    }
+
+    private void sendTracked(RabbitOperations operations, Pending pending) {
+        String id = UUID.randomUUID().toString();
+        Pending tracked = new Pending(pending.exchange(), pending.routingKey(), pending.message(),
+                pending.attempt(), System.nanoTime());
+        CorrelationData correlation = new CorrelationData(id);
+        inFlight.put(id, tracked);
+        correlation.getFuture().whenComplete((confirm, error) -> {
+            if (confirm != null && confirm.isAck()) {
+                onAck(id);
+            } else {
+                onNack(id, error != null ? error.getMessage() : confirm.getReason());
+            }
+        });
+        try {
+            operations.send(pending.exchange(), pending.routingKey(), pending.message(), correlation);
+        } catch (RuntimeException e) {
+            inFlight.remove(id);
+            throw e;
+        }
+    }
+
+    private void onAck(String id) {
+        Pending pending = inFlight.remove(id);
+//        a confirm for a publish the sweep already gave up on; its resend is tracked separately
+        if (pending == null) {
+            return;
+        }
+        acked.increment();
+        confirmLatency.record(System.nanoTime() - pending.sentAt(), TimeUnit.NANOSECONDS);
+        permits.release();
+    }
+
+    private void onNack(String id, String reason) {
+        Pending pending = inFlight.remove(id);
+        if (pending == null) {
+            return;
+        }
+        nacked.increment();
+        log.warn("Publish to {}/{} was nacked ({}), attempt {}", pending.exchange(), pending.routingKey(),
+                reason, pending.attempt());
+        retryLater(pending);
+    }
+
+    private void sweepUnconfirmed() {
+        long cutoff = System.nanoTime() - properties.confirmTimeout().toNanos();
+        inFlight.forEach((id, pending) -> {
+            if (pending.sentAt() < cutoff && inFlight.remove(id, pending)) {
+                timedOut.increment();
+                log.warn("No confirm for publish to {}/{} within {}ms, attempt {}", pending.exchange(),
+                        pending.routingKey(), properties.confirmTimeout().toMillis(), pending.attempt());
+                retryLater(pending);
+            }
+        });
+    }
+
+    private void retryLater(Pending pending) {
+        Pending next;
+        if (pending.parked()) {
+            next = pending.nextAttempt();
+        } else if (pending.attempt() >= properties.maxAttempts()) {
+            parked.increment();
+            log.error("Parking publish to {}/{} (message {}) on {} after {} attempts", pending.exchange(),
+                    pending.routingKey(), pending.message().getMessageProperties().getMessageId(),
+                    RabbitMQConfig.PUBLISHER_PARKING_QUEUE, pending.attempt());
+            next = pending.park();
+        } else {
+            next = pending.nextAttempt();
+        }
+        long backoff = Math.min(properties.maxBackoff().toMillis(),
+                properties.initialBackoff().toMillis() << Math.min(pending.attempt() - 1, 20));
+        try {
+            scheduler.schedule(() -> resend(next), backoff, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+//            only happens once close() has shut the scheduler down
+            log.error("Could not schedule a resend to {}/{}, dropping it", next.exchange(), next.routingKey(), e);
+            permits.release();
+        }
+    }
+
+    private void resend(Pending pending) {
+        retried.increment();
+        try {
+//            the slot taken by the first attempt is still held, so nothing is acquired here
+            sendTracked(rabbitTemplate, pending);
+        } catch (RuntimeException e) {
+            log.warn("Resend to {}/{} failed: {}", pending.exchange(), pending.routingKey(), e.getMessage());
+            retryLater(pending);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        if (inFlight() > 0) {
+            log.warn("Shutting down with {} unconfirmed publishes", inFlight());
+        }
+    }
+}
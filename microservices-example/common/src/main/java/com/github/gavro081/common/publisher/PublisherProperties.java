@@ -0,0 +1,24 @@
+package com.github.gavro081.common.publisher;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Limits of the {@link ConfirmingPublisher}. At most {@code maxInFlight} publishes wait for a
+ * confirm at once; a publish that can't get a slot within {@code confirmTimeout} fails instead of
+ * queueing without bound. Nacked publishes, and those without a confirm after
+ * {@code confirmTimeout}, are sent again with a backoff that doubles from {@code initialBackoff}
+ * up to {@code maxBackoff}, {@code maxAttempts} times in total; after that the publish is parked
+ * on the publisher parking queue, which is retried until confirmed.
+ */
+@ConfigurationProperties(prefix = "microservices.publisher")
+public record PublisherProperties(
+        @DefaultValue("1000") int maxInFlight,
+        @DefaultValue("5s") Duration confirmTimeout,
+        @DefaultValue("10") int maxAttempts,
+        @DefaultValue("100ms") Duration initialBackoff,
+        @DefaultValue("10s") Duration maxBackoff
+) {
+}
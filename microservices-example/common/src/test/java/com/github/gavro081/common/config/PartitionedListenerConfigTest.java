@@ -0,0 +1,29 @@
+package com.github.gavro081.common.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionedListenerConfigTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(RabbitAutoConfiguration.class, PartitionedListenerConfig.class));
+
+    @Test
+    void withoutPartitions_KeepsTheSimpleContainer() {
+        contextRunner.withPropertyValues(RabbitMQConfig.PARTITIONS_PROPERTY + "=0")
+                .run(context -> assertThat(context.getBean("rabbitListenerContainerFactory"))
+                        .isInstanceOf(SimpleRabbitListenerContainerFactory.class));
+    }
+
+    @Test
+    void withPartitions_SwitchesToTheDirectContainer() {
+        contextRunner.withPropertyValues(RabbitMQConfig.PARTITIONS_PROPERTY + "=4")
+                .run(context -> assertThat(context.getBean("rabbitListenerContainerFactory"))
+                        .isInstanceOf(DirectRabbitListenerContainerFactory.class));
+    }
+}
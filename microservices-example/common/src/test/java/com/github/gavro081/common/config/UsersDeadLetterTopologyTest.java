@@ -0,0 +1,51 @@
+package com.github.gavro081.common.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.boot.test.context.assertj.AssertableApplicationContext;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UsersDeadLetterTopologyTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(RabbitMQConfig.class, PartitionedTopologyConfig.class);
+
+    private static List<Queue> declaredQueues(AssertableApplicationContext context) {
+        List<Queue> queues = new ArrayList<>(context.getBeansOfType(Queue.class).values());
+        context.getBeansOfType(Declarables.class).values()
+                .forEach(declarables -> queues.addAll(declarables.getDeclarablesByType(Queue.class)));
+        return queues;
+    }
+
+//    a rejected debit must land in a durable queue an operator can drain, not be dropped by the broker
+    private static void assertRejectedDebitsAreKept(AssertableApplicationContext context, String partitions) {
+        List<Queue> queues = declaredQueues(context);
+        for (String listenerQueue : RabbitMQConfig.listenerQueues(RabbitMQConfig.USERS_QUEUE, partitions)) {
+            Queue queue = queues.stream().filter(q -> q.getName().equals(listenerQueue)).findFirst().orElseThrow();
+            assertThat(queue.getArguments())
+                    .containsEntry("x-dead-letter-exchange", "")
+                    .containsEntry("x-dead-letter-routing-key", RabbitMQConfig.USERS_QUEUE_DLQ);
+        }
+        assertThat(queues).anySatisfy(queue -> {
+            assertThat(queue.getName()).isEqualTo(RabbitMQConfig.USERS_QUEUE_DLQ);
+            assertThat(queue.isDurable()).isTrue();
+        });
+    }
+
+    @Test
+    void usersQueue_DeadLettersIntoUsersDlq() {
+        contextRunner.withPropertyValues(RabbitMQConfig.PARTITIONS_PROPERTY + "=0")
+                .run(context -> assertRejectedDebitsAreKept(context, "0"));
+    }
+
+    @Test
+    void usersPartitions_DeadLetterIntoUsersDlq() {
+        contextRunner.withPropertyValues(RabbitMQConfig.PARTITIONS_PROPERTY + "=4")
+                .run(context -> assertRejectedDebitsAreKept(context, "4"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.gavro081.common.converter;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.enums.DebitFailureReason;
+import com.github.gavro081.common.events.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BinaryMessageConverterTest {
+    private final NegotiatingMessageConverter binaryPublisher = new NegotiatingMessageConverter(
+            RabbitMQConfig.jsonMessageConverter(), new BinaryMessageConverter(), true);
+    private final NegotiatingMessageConverter jsonPublisher = new NegotiatingMessageConverter(
+            RabbitMQConfig.jsonMessageConverter(), new BinaryMessageConverter(), false);
+
+    private static List<Object> sampleEvents() {
+        return List.of(
+                new OrderCreatedEvent(UUID.randomUUID(), "101", "7", 3, "gavro"),
+                new InventoryReservedEvent(UUID.randomUUID(), "7", "101", "MacBook Pro M4Pro", 1, 2499.99, 2499.99, "gavro"),
+                new BalanceDebitedEvent(UUID.randomUUID(), 7L, "101", 2499.99, "MacBook Pro M4Pro", "gavro"),
+                new BalanceDebitFailedEvent(UUID.randomUUID(), "101", 1, DebitFailureReason.values()[0], "not enough funds", "gavro"),
+                new ProductChangedEvent(101L, "MacBook Pro M4Pro"),
+                new UserChangedEvent(7L, null)
+        );
+    }
+
+    @Test
+    void roundTrip_EveryEvent_PreservesAllFields() {
+        for (Object event : sampleEvents()) {
+            Message message = binaryPublisher.toMessage(event, new MessageProperties());
+
+            assertThat(message.getMessageProperties().getContentType()).isEqualTo(BinaryMessageConverter.CONTENT_TYPE);
+            assertThat(jsonPublisher.fromMessage(message)).usingRecursiveComparison().isEqualTo(event);
+        }
+    }
+
+    @Test
+    void roundTrip_NonNumericIds_FallBackToStrings() {
+        OrderCreatedEvent event = new OrderCreatedEvent(UUID.randomUUID(), "007", "not-a-number", 1, "gavro");
+
+        Object decoded = jsonPublisher.fromMessage(binaryPublisher.toMessage(event, new MessageProperties()));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    void binaryPublisher_StillReadsJson() {
+        OrderCreatedEvent event = new OrderCreatedEvent(UUID.randomUUID(), "101", "7", 3, "gavro");
+        Message json = jsonPublisher.toMessage(event, new MessageProperties());
+
+        assertThat(json.getMessageProperties().getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_JSON);
+        assertThat(binaryPublisher.fromMessage(json)).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    void toMessage_SetsPartitionKeyInBothFormats() {
+        OrderCreatedEvent event = new OrderCreatedEvent(UUID.randomUUID(), "101", "7", 3, "gavro");
+
+        for (NegotiatingMessageConverter converter : List.of(binaryPublisher, jsonPublisher)) {
+            Message message = converter.toMessage(event, new MessageProperties());
+            assertThat((String) message.getMessageProperties().getHeader(RabbitMQConfig.PARTITION_KEY_HEADER)).isEqualTo("101");
+        }
+    }
+
+    @Test
+    void binaryMessages_AreSmallerThanJson() {
+        for (Object event : sampleEvents()) {
+            Message binary = binaryPublisher.toMessage(event, new MessageProperties());
+            Message json = jsonPublisher.toMessage(event, new MessageProperties());
+
+            assertThat(binary.getBody().length).isLessThan(json.getBody().length / 2);
+        }
+    }
+
+    @Test
+    void fromMessage_TruncatedBody_Throws() {
+        Message message = binaryPublisher.toMessage(sampleEvents().get(0), new MessageProperties());
+        byte[] truncated = Arrays.copyOf(message.getBody(), message.getBody().length - 3);
+
+        assertThatThrownBy(() -> new BinaryMessageConverter().fromMessage(new Message(truncated, message.getMessageProperties())))
+                .isInstanceOf(MessageConversionException.class);
+    }
+
+    @Test
+    void readEnum_OrdinalOutOfRange_Throws() {
+//        zigzag varints: 200 is ordinal 100, 1 is -1
+        byte[] tooLarge = {(byte) 0xC8, 0x01};
+        byte[] negative = {0x01};
+
+        assertThatThrownBy(() -> new BinaryEventReader(tooLarge).readEnum(DebitFailureReason.class))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("DebitFailureReason");
+        assertThatThrownBy(() -> new BinaryEventReader(negative).readEnum(DebitFailureReason.class))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.gavro081.common.dedupe;
+
+import com.github.gavro081.common.dedupe.ProcessedEventFilter.Verdict;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessedEventFilterTest {
+    private static final String CONTEXT = "BALANCE_DEBIT";
+
+    private final ProcessedEventFilter filter = new ProcessedEventFilter(1000, 0.001, 1);
+
+    @Test
+    void rebuild_ForgetsIdsThatAreNoLongerInTheTable() {
+        UUID purged = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        filter.seed(purged, CONTEXT);
+        filter.seed(kept, CONTEXT);
+
+        long seeded = filter.rebuild(seed -> seed.accept(kept, CONTEXT));
+
+        assertThat(seeded).isEqualTo(1);
+        assertThat(filter.check(purged, CONTEXT)).isEqualTo(Verdict.NEW);
+        assertThat(filter.check(kept, CONTEXT)).isEqualTo(Verdict.UNKNOWN);
+    }
+
+    @Test
+    void rebuild_KeepsIdsRecordedWhileItWasScanning() {
+        UUID committedDuringScan = UUID.randomUUID();
+        UUID evictsItFromRecent = UUID.randomUUID();
+
+        filter.rebuild(seed -> filter.record(committedDuringScan, CONTEXT));
+        filter.record(evictsItFromRecent, CONTEXT);
+
+        assertThat(filter.check(committedDuringScan, CONTEXT)).isEqualTo(Verdict.UNKNOWN);
+    }
+}
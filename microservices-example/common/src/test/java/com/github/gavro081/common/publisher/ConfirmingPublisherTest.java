@@ -0,0 +1,210 @@
+package com.github.gavro081.common.publisher;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ConfirmingPublisherTest {
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConfirmingPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        lenient().when(rabbitTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+        publisher = new ConfirmingPublisher(rabbitTemplate, new PublisherProperties(
+                2, Duration.ofMillis(200), 3, Duration.ofMillis(1), Duration.ofMillis(10)), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+    }
+
+    private List<CorrelationData> sent(int times) {
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, timeout(2000).times(times))
+                .send(eq("exchange"), eq("key"), any(Message.class), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private List<CorrelationData> parked(int times) {
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, timeout(2000).times(times))
+                .send(eq(""), eq(RabbitMQConfig.PUBLISHER_PARKING_QUEUE), any(Message.class), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private double confirms(String outcome) {
+        return meterRegistry.counter("publisher.confirms", "outcome", outcome).count();
+    }
+
+    @Test
+    void ack_FreesTheSlotAndRecordsLatency() {
+        publisher.publish("exchange", "key", "payload");
+        assertThat(publisher.inFlight()).isEqualTo(1);
+
+        sent(1).get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        assertThat(publisher.inFlight()).isZero();
+        assertThat(confirms("ack")).isEqualTo(1);
+        assertThat(meterRegistry.timer("publisher.confirm.latency").count()).isEqualTo(1);
+    }
+
+    @Test
+    void nack_IsResentUntilAcked() {
+        publisher.publish("exchange", "key", "payload");
+
+        sent(1).get(0).getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+        List<CorrelationData> attempts = sent(2);
+        assertThat(publisher.inFlight()).isEqualTo(1);
+        attempts.get(1).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        assertThat(publisher.inFlight()).isZero();
+        assertThat(confirms("nack")).isEqualTo(1);
+        assertThat(meterRegistry.counter("publisher.retries").count()).isEqualTo(1);
+        assertThat(attempts.get(0).getId()).isNotEqualTo(attempts.get(1).getId());
+    }
+
+    @Test
+    void missingConfirm_IsResentAndTheLateAckIgnored() {
+        publisher.publish("exchange", "key", "payload");
+
+        List<CorrelationData> attempts = sent(2);
+        assertThat(confirms("timeout")).isEqualTo(1);
+        attempts.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+        assertThat(publisher.inFlight()).isEqualTo(1);
+
+        attempts.get(1).getFuture().complete(new CorrelationData.Confirm(true, null));
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    @Test
+    void nack_AfterMaxAttempts_ParksTheMessageUntilConfirmed() {
+        publisher.publish("exchange", "key", "payload");
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            sent(attempt).get(attempt - 1).getFuture().complete(new CorrelationData.Confirm(false, "rejected"));
+        }
+
+        List<CorrelationData> firstPark = parked(1);
+//        the parking send is nacked too; it keeps being retried rather than dropped
+        firstPark.get(0).getFuture().complete(new CorrelationData.Confirm(false, "rejected"));
+        parked(2).get(1).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        ArgumentCaptor<Message> parkedMessage = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate, times(2)).send(eq(""), eq(RabbitMQConfig.PUBLISHER_PARKING_QUEUE),
+                parkedMessage.capture(), any(CorrelationData.class));
+        assertThat(publisher.inFlight()).isZero();
+        assertThat(meterRegistry.counter("publisher.parked").count()).isEqualTo(1);
+        assertThat(parkedMessage.getValue().getMessageProperties().<String>getHeader(RabbitMQConfig.ORIGINAL_EXCHANGE_HEADER))
+                .isEqualTo("exchange");
+        assertThat(parkedMessage.getValue().getMessageProperties().<String>getHeader(RabbitMQConfig.ORIGINAL_ROUTING_KEY_HEADER))
+                .isEqualTo("key");
+    }
+
+    @Test
+    void publishAll_SendsTheBatchOverOneChannel() {
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
+
+        publisher.publishAll(List.of(
+                new ConfirmingPublisher.Outgoing("exchange", "key", "first"),
+                new ConfirmingPublisher.Outgoing("exchange", "key", "second")));
+
+        verify(rabbitTemplate, times(1)).invoke(any());
+        sent(2);
+        assertThat(publisher.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void publish_WhenTooManyAreUnconfirmed_FailsInsteadOfQueueing() {
+        publisher.publish("exchange", "key", "first");
+        publisher.publish("exchange", "key", "second");
+
+        assertThatThrownBy(() -> publisher.publish("exchange", "key", "third"))
+                .isInstanceOf(AmqpException.class);
+    }
+
+    @Test
+    void failedSend_ReleasesItsSlot() {
+        doThrow(new AmqpException("connection refused"))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThatThrownBy(() -> publisher.publish("exchange", "key", "payload"))
+                .isInstanceOf(AmqpException.class);
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    private void confirmOnSend(CorrelationData.Confirm confirm) {
+        doAnswer(invocation -> invocation.<CorrelationData>getArgument(3).getFuture().complete(confirm))
+                .when(rabbitTemplate).send(eq("exchange"), eq("key"), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void sendAndAwaitConfirm_ReturnsOnceAcked() {
+        confirmOnSend(new CorrelationData.Confirm(true, null));
+
+        publisher.sendAndAwaitConfirm("exchange", "key", new Message("payload".getBytes()));
+
+        assertThat(confirms("ack")).isEqualTo(1);
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    @Test
+    void sendAndAwaitConfirm_Nacked_ThrowsWithoutResending() {
+        confirmOnSend(new CorrelationData.Confirm(false, "queue full"));
+
+        assertThatThrownBy(() -> publisher.sendAndAwaitConfirm("exchange", "key", new Message("payload".getBytes())))
+                .isInstanceOf(AmqpException.class);
+        verify(rabbitTemplate, after(50).times(1)).send(eq("exchange"), eq("key"), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void sendAndAwaitConfirm_NoConfirm_ThrowsAfterTheTimeout() {
+        assertThatThrownBy(() -> publisher.sendAndAwaitConfirm("exchange", "key", new Message("payload".getBytes())))
+                .isInstanceOf(AmqpException.class)
+                .hasMessageContaining("No confirm");
+        assertThat(confirms("timeout")).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_WithoutConfirms_Fails() {
+        when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+
+        assertThatThrownBy(() -> new ConfirmingPublisher(rabbitTemplate,
+                new PublisherProperties(1, Duration.ofSeconds(1), 1, Duration.ofMillis(1), Duration.ofMillis(1)), meterRegistry))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
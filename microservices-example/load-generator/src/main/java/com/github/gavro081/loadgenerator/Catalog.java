@@ -0,0 +1,14 @@
+package com.github.gavro081.loadgenerator;
+
+import java.util.List;
+
+/**
+ * The users and products the run orders from, as the gateway reported them before the first
+ * order. Stock and balances are only used to build orders that are meant to fail.
+ */
+public record Catalog(List<CatalogUser> users, List<CatalogProduct> products) {
+
+    public record CatalogUser(String username, double balance) {}
+
+    public record CatalogProduct(String name, double price, int quantity) {}
+}
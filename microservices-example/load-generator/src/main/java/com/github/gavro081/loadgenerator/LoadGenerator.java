@@ -0,0 +1,167 @@
+package com.github.gavro081.loadgenerator;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.gavro081.loadgenerator.Catalog.CatalogProduct;
+import com.github.gavro081.loadgenerator.Catalog.CatalogUser;
+import com.github.gavro081.loadgenerator.RequestMix.PlannedOrder;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Places orders through the gateway at a fixed rate, independent of how fast they are answered
+ * (open loop), then waits for their final statuses and writes the results:
+ * accept-latency.hgrm (scheduled send to the gateway's 202), completion-latency.hgrm
+ * (scheduled send to the COMPLETED/FAILED notification) and summary.json.
+ * The .hgrm files are HdrHistogram percentile distributions in milliseconds.
+ */
+@Component
+public class LoadGenerator implements CommandLineRunner {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final LoadGeneratorProperties properties;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final OrderTracker tracker = new OrderTracker();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public LoadGenerator(LoadGeneratorProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Catalog catalog = new Catalog(
+                get("/api/users", new TypeReference<List<CatalogUser>>() {}),
+                get("/api/products", new TypeReference<List<CatalogProduct>>() {}));
+        RequestMix mix = new RequestMix(catalog, properties);
+
+        try (OrderStatusSubscriber ignored = OrderStatusSubscriber.subscribe(
+                properties.websocketUrl(), mix.usernames(), tracker, properties.requestTimeout())) {
+            int total = (int) (properties.rate() * properties.duration().toMillis() / 1000);
+            long interval = TimeUnit.SECONDS.toNanos(1) / properties.rate();
+            log.info("Sending {} orders at {}/s through {}", total, properties.rate(), properties.gatewayUrl());
+
+            long start = System.nanoTime();
+            for (int i = 0; i < total; i++) {
+                long scheduled = start + i * interval;
+                LockSupport.parkNanos(scheduled - System.nanoTime());
+                send(mix.next(), scheduled);
+            }
+            long sendingNanos = System.nanoTime() - start;
+
+            long deadline = System.nanoTime() + properties.completionTimeout().toNanos();
+            while ((inFlight.get() > 0 || tracker.outstanding() > 0) && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            writeResults(total, sendingNanos);
+        }
+    }
+
+    private void send(PlannedOrder order, long scheduled) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                "username", order.username(),
+                "productName", order.productName(),
+                "quantity", String.valueOf(order.quantity())));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(properties.gatewayUrl() + "/api/orders"))
+                .timeout(properties.requestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    long responded = System.nanoTime();
+                    try {
+                        if (failure != null) {
+                            tracker.failed();
+                        } else if (response.statusCode() == 202) {
+                            UUID orderId = objectMapper.readValue(response.body(), UUID.class);
+                            tracker.accepted(orderId, order.kind(), scheduled, responded);
+                        } else {
+                            tracker.rejected(scheduled, responded);
+                        }
+                    } catch (IOException e) {
+                        tracker.failed();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+    }
+
+    private <T> T get(String path, TypeReference<T> type) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(properties.gatewayUrl() + path))
+                .timeout(properties.requestTimeout())
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), type);
+    }
+
+    private void writeResults(int submitted, long sendingNanos) throws IOException {
+        Path directory = Files.createDirectories(Path.of(properties.outputDirectory()));
+        Histogram accept = tracker.acceptHistogram();
+        Histogram completion = tracker.completionHistogram();
+        writeHistogram(directory.resolve("accept-latency.hgrm"), accept);
+        writeHistogram(directory.resolve("completion-latency.hgrm"), completion);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("targetRate", properties.rate());
+        summary.put("achievedRate", Math.round(submitted * 1e10 / sendingNanos) / 10.0);
+        summary.put("submitted", submitted);
+        summary.put("accepted", tracker.acceptedCount());
+        summary.put("rejected", tracker.rejectedCount());
+        summary.put("errors", tracker.errorCount());
+        summary.put("timedOut", tracker.outstanding());
+        summary.put("outcomes", tracker.outcomes());
+        summary.put("acceptLatencyMillis", percentiles(accept));
+        summary.put("completionLatencyMillis", percentiles(completion));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(), summary);
+        log.info("Load run finished: {}", summary);
+        log.info("Wrote histograms and summary to {}", directory.toAbsolutePath());
+    }
+
+    private static void writeHistogram(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+//            values are recorded in microseconds; the scaling ratio prints them as milliseconds
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+        percentiles.put("p90", histogram.getValueAtPercentile(90) / 1000.0);
+        percentiles.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+        percentiles.put("p99.9", histogram.getValueAtPercentile(99.9) / 1000.0);
+        percentiles.put("max", histogram.getMaxValue() / 1000.0);
+        return percentiles;
+    }
+}
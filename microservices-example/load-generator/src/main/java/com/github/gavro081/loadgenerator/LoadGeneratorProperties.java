@@ -0,0 +1,32 @@
+package com.github.gavro081.loadgenerator;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One load run: where to send orders, how fast, for how long and in what mix.
+ * Skews are Zipf exponents over the user/product lists (0 is uniform, 1 is classic Zipf, so
+ * the first entry gets the most orders). The two ratios are the share of orders built to
+ * fail on stock or on funds; the rest are ordinary single-item orders.
+ * Empty users/products mean every user/product the gateway returns.
+ */
+@ConfigurationProperties("loadgen")
+public record LoadGeneratorProperties(
+        @DefaultValue("http://localhost:8080") String gatewayUrl,
+        @DefaultValue("http://localhost:8083/ws") String websocketUrl,
+        @DefaultValue("50") int rate,
+        @DefaultValue("60s") Duration duration,
+        @DefaultValue("30s") Duration completionTimeout,
+        @DefaultValue("5s") Duration requestTimeout,
+        @DefaultValue List<String> users,
+        @DefaultValue List<String> products,
+        @DefaultValue("0") double userSkew,
+        @DefaultValue("0") double productSkew,
+        @DefaultValue("0") double insufficientStockRatio,
+        @DefaultValue("0") double insufficientFundsRatio,
+        @DefaultValue("42") long seed,
+        @DefaultValue("loadgen-results") String outputDirectory) {
+}
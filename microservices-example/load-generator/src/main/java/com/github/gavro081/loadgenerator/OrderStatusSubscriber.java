@@ -0,0 +1,77 @@
+package com.github.gavro081.loadgenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listens on order-service's STOMP endpoint the same way the frontend does (SockJS on /ws)
+ * and hands every /topic/order-status/{username} update to the tracker.
+ */
+public class OrderStatusSubscriber implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusSubscriber.class);
+//    the simple broker sends no receipt for SUBSCRIBE, so give it a moment to register them
+    private static final Duration SUBSCRIBE_SETTLE_TIME = Duration.ofSeconds(1);
+
+    private final WebSocketStompClient stompClient;
+    private final StompSession session;
+
+    private OrderStatusSubscriber(WebSocketStompClient stompClient, StompSession session) {
+        this.stompClient = stompClient;
+        this.session = session;
+    }
+
+    public static OrderStatusSubscriber subscribe(String websocketUrl, List<String> usernames,
+                                                  OrderTracker tracker, Duration connectTimeout) throws Exception {
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+
+        StompSession session = stompClient.connectAsync(websocketUrl, new StompSessionHandlerAdapter() {
+            @Override
+            public void handleTransportError(StompSession session, Throwable exception) {
+                log.warn("Order status connection failed: {}", exception.getMessage());
+            }
+        }).get(connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        for (String username : usernames) {
+            session.subscribe("/topic/order-status/" + username, new StompSessionHandlerAdapter() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    long receivedNanos = System.nanoTime();
+                    Map<?, ?> update = (Map<?, ?>) payload;
+                    tracker.statusReceived(UUID.fromString((String) update.get("orderId")),
+                            (String) update.get("status"), receivedNanos);
+                }
+            });
+        }
+        Thread.sleep(SUBSCRIBE_SETTLE_TIME.toMillis());
+        log.info("Subscribed to order status updates for {} users", usernames.size());
+        return new OrderStatusSubscriber(stompClient, session);
+    }
+
+    @Override
+    public void close() {
+        session.disconnect();
+        stompClient.stop();
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.gavro081.loadgenerator;
+
+import com.github.gavro081.loadgenerator.RequestMix.Kind;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Joins each accepted order with its status notification and records both latencies in
+ * microseconds. Either side can arrive first: order-service may push the final status before
+ * the 202 reaches us, so whichever half shows up second completes the entry.
+ *
+ * <p>Both latencies start at the order's scheduled send time rather than the moment it
+ * actually went out, so a stalled gateway shows up as latency instead of being hidden by
+ * sending less (coordinated omission).
+ */
+public class OrderTracker {
+    private final Recorder acceptLatency = new Recorder(3);
+    private final Recorder completionLatency = new Recorder(3);
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Kind, Map<String, LongAdder>> outcomes = new EnumMap<>(Kind.class);
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private record Entry(Kind kind, long scheduledNanos, String status, long finishedNanos) {}
+
+    public OrderTracker() {
+        for (Kind kind : Kind.values()) {
+            outcomes.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void accepted(UUID orderId, Kind kind, long scheduledNanos, long respondedNanos) {
+        acceptLatency.recordValue(micros(respondedNanos - scheduledNanos));
+        accepted.increment();
+        outstanding.incrementAndGet();
+        entries.compute(orderId, (id, entry) -> entry == null
+                ? new Entry(kind, scheduledNanos, null, 0)
+                : complete(kind, scheduledNanos, entry.status(), entry.finishedNanos()));
+    }
+
+    public void statusReceived(UUID orderId, String status, long receivedNanos) {
+        entries.compute(orderId, (id, entry) -> entry == null
+                ? new Entry(null, 0, status, receivedNanos)
+                : complete(entry.kind(), entry.scheduledNanos(), status, receivedNanos));
+    }
+
+    /** The gateway answered with something other than 202. */
+    public void rejected(long scheduledNanos, long respondedNanos) {
+        acceptLatency.recordValue(micros(respondedNanos - scheduledNanos));
+        rejected.increment();
+    }
+
+    /** The request never got an answer: connection refused, timed out and the like. */
+    public void failed() {
+        errors.increment();
+    }
+
+    /** Accepted orders still waiting for their final status. */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public long acceptedCount() {
+        return accepted.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long errorCount() {
+        return errors.sum();
+    }
+
+    /** Final statuses seen so far, per kind of order, e.g. INSUFFICIENT_STOCK -> {FAILED=12}. */
+    public Map<Kind, Map<String, Long>> outcomes() {
+        Map<Kind, Map<String, Long>> snapshot = new EnumMap<>(Kind.class);
+        outcomes.forEach((kind, counts) -> {
+            Map<String, Long> statuses = new TreeMap<>();
+            counts.forEach((status, count) -> statuses.put(status, count.sum()));
+            snapshot.put(kind, statuses);
+        });
+        return snapshot;
+    }
+
+    public Histogram acceptHistogram() {
+        return acceptLatency.getIntervalHistogram();
+    }
+
+    public Histogram completionHistogram() {
+        return completionLatency.getIntervalHistogram();
+    }
+
+    private Entry complete(Kind kind, long scheduledNanos, String status, long finishedNanos) {
+        completionLatency.recordValue(micros(finishedNanos - scheduledNanos));
+        outcomes.get(kind).computeIfAbsent(status, s -> new LongAdder()).increment();
+        outstanding.decrementAndGet();
+//        returning null drops the entry from the map
+        return null;
+    }
+
+    private static long micros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+}
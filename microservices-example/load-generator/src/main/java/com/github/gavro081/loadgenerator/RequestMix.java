@@ -0,0 +1,120 @@
+package com.github.gavro081.loadgenerator;
+
+import com.github.gavro081.loadgenerator.Catalog.CatalogProduct;
+import com.github.gavro081.loadgenerator.Catalog.CatalogUser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Decides what each order in a run looks like. The sequence depends only on the catalog, the
+ * properties and the seed, so two runs against the same data send the same orders.
+ */
+public class RequestMix {
+
+    public enum Kind { ORDINARY, INSUFFICIENT_STOCK, INSUFFICIENT_FUNDS }
+
+    public record PlannedOrder(Kind kind, String username, String productName, int quantity) {}
+
+    private record FundsShortfall(CatalogUser user, CatalogProduct product, int quantity) {}
+
+    private final List<CatalogUser> users;
+    private final List<CatalogProduct> products;
+    private final ZipfSampler userSampler;
+    private final ZipfSampler productSampler;
+    private final List<FundsShortfall> shortfalls;
+    private final double insufficientStockRatio;
+    private final double insufficientFundsRatio;
+    private final Random random;
+
+    public RequestMix(Catalog catalog, LoadGeneratorProperties properties) {
+        if (properties.insufficientStockRatio() < 0 || properties.insufficientFundsRatio() < 0
+                || properties.insufficientStockRatio() + properties.insufficientFundsRatio() > 1) {
+            throw new IllegalArgumentException("insufficient-stock-ratio and insufficient-funds-ratio must be "
+                    + "non-negative and add up to at most 1");
+        }
+        this.users = select(catalog.users(), properties.users(), CatalogUser::username, "user");
+        this.products = select(catalog.products(), properties.products(), CatalogProduct::name, "product");
+        this.userSampler = new ZipfSampler(users.size(), properties.userSkew());
+        this.productSampler = new ZipfSampler(products.size(), properties.productSkew());
+        this.insufficientStockRatio = properties.insufficientStockRatio();
+        this.insufficientFundsRatio = properties.insufficientFundsRatio();
+        this.random = new Random(properties.seed());
+
+//        a funds failure needs a quantity the user can't pay for but the product can still cover,
+//        otherwise product-service rejects it on stock before user-service ever sees it
+        this.shortfalls = new ArrayList<>();
+        for (CatalogUser user : users) {
+            for (CatalogProduct product : products) {
+                int quantity = (int) Math.floor(user.balance() / product.price()) + 1;
+                if (quantity <= product.quantity()) {
+                    shortfalls.add(new FundsShortfall(user, product, quantity));
+                }
+            }
+        }
+        if (insufficientFundsRatio > 0 && shortfalls.isEmpty()) {
+            throw new IllegalStateException("No user/product pair can fail on funds without failing on stock first");
+        }
+    }
+
+    public PlannedOrder next() {
+        double roll = random.nextDouble();
+        if (roll < insufficientStockRatio) {
+            CatalogProduct product = products.get(productSampler.next(random));
+            return new PlannedOrder(Kind.INSUFFICIENT_STOCK, users.get(userSampler.next(random)).username(),
+                    product.name(), product.quantity() + 1);
+        }
+        if (roll < insufficientStockRatio + insufficientFundsRatio) {
+            FundsShortfall shortfall = shortfalls.get(random.nextInt(shortfalls.size()));
+            return new PlannedOrder(Kind.INSUFFICIENT_FUNDS, shortfall.user().username(),
+                    shortfall.product().name(), shortfall.quantity());
+        }
+        return new PlannedOrder(Kind.ORDINARY, users.get(userSampler.next(random)).username(),
+                products.get(productSampler.next(random)).name(), 1);
+    }
+
+    /** Every username an order can be placed for, so status subscriptions can be opened up front. */
+    public List<String> usernames() {
+        return users.stream().map(CatalogUser::username).toList();
+    }
+
+    private static <T> List<T> select(List<T> available, List<String> wanted, Function<T, String> name, String kind) {
+        if (wanted.isEmpty()) {
+            if (available.isEmpty()) {
+                throw new IllegalStateException("The gateway returned no " + kind + "s to order with");
+            }
+            return available;
+        }
+        return wanted.stream()
+                .map(wantedName -> available.stream()
+                        .filter(item -> name.apply(item).equals(wantedName))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown " + kind + ": " + wantedName)))
+                .toList();
+    }
+
+    /** Picks index i with probability proportional to 1 / (i + 1)^exponent. */
+    static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int size, double exponent) {
+            cumulative = new double[size];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < size; i++) {
+                cumulative[i] /= total;
+            }
+        }
+
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.gavro081.loadgenerator;
+
+import com.github.gavro081.loadgenerator.RequestMix.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderTrackerTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final OrderTracker tracker = new OrderTracker();
+
+    @Test
+    void statusAfterAccept_RecordsBothLatenciesFromScheduledTime() {
+        UUID orderId = UUID.randomUUID();
+
+        tracker.accepted(orderId, Kind.ORDINARY, 0, 20 * MILLI);
+        assertThat(tracker.outstanding()).isEqualTo(1);
+        tracker.statusReceived(orderId, "COMPLETED", 150 * MILLI);
+
+        assertThat(tracker.outstanding()).isZero();
+        assertThat(tracker.acceptHistogram().getValueAtPercentile(50)).isBetween(19_000L, 21_000L);
+        assertThat(tracker.completionHistogram().getValueAtPercentile(50)).isBetween(149_000L, 151_000L);
+        assertThat(tracker.outcomes().get(Kind.ORDINARY)).isEqualTo(Map.of("COMPLETED", 1L));
+    }
+
+    @Test
+    void statusBeforeAccept_StillCompletesTheOrder() {
+        UUID orderId = UUID.randomUUID();
+
+        tracker.statusReceived(orderId, "FAILED", 40 * MILLI);
+        tracker.accepted(orderId, Kind.INSUFFICIENT_STOCK, 0, 60 * MILLI);
+
+        assertThat(tracker.outstanding()).isZero();
+        assertThat(tracker.acceptedCount()).isEqualTo(1);
+        assertThat(tracker.outcomes().get(Kind.INSUFFICIENT_STOCK)).isEqualTo(Map.of("FAILED", 1L));
+    }
+
+    @Test
+    void statusForSomeoneElsesOrder_IsNotCounted() {
+        tracker.statusReceived(UUID.randomUUID(), "COMPLETED", MILLI);
+
+        assertThat(tracker.outstanding()).isZero();
+        assertThat(tracker.completionHistogram().getTotalCount()).isZero();
+        assertThat(tracker.outcomes().values()).allMatch(Map::isEmpty);
+    }
+
+    @Test
+    void rejectedOrders_CountTowardAcceptLatencyOnly() {
+        tracker.rejected(0, 5 * MILLI);
+
+        assertThat(tracker.rejectedCount()).isEqualTo(1);
+        assertThat(tracker.acceptHistogram().getTotalCount()).isEqualTo(1);
+        assertThat(tracker.outstanding()).isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.gavro081.loadgenerator;
+
+import com.github.gavro081.loadgenerator.Catalog.CatalogProduct;
+import com.github.gavro081.loadgenerator.Catalog.CatalogUser;
+import com.github.gavro081.loadgenerator.RequestMix.Kind;
+import com.github.gavro081.loadgenerator.RequestMix.PlannedOrder;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class RequestMixTest {
+    private final Catalog catalog = new Catalog(
+            List.of(new CatalogUser("filipgav", 100000.00),
+                    new CatalogUser("gavro", 2300.00),
+                    new CatalogUser("aleksandar", 100.00)),
+            List.of(new CatalogProduct("macbook", 1999.99, 50),
+                    new CatalogProduct("mouse", 29.99, 200),
+                    new CatalogProduct("desk", 599.99, 15)));
+
+    private static LoadGeneratorProperties properties(List<String> users, double userSkew,
+                                                      double stockRatio, double fundsRatio) {
+        return new LoadGeneratorProperties("http://localhost:8080", "http://localhost:8083/ws", 50,
+                Duration.ofSeconds(60), Duration.ofSeconds(30), Duration.ofSeconds(5), users, List.of(),
+                userSkew, 0, stockRatio, fundsRatio, 42, "loadgen-results");
+    }
+
+    private static List<PlannedOrder> draw(RequestMix mix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> mix.next()).toList();
+    }
+
+    @Test
+    void sameSeed_ProducesSameOrders() {
+        LoadGeneratorProperties properties = properties(List.of(), 1.0, 0.2, 0.1);
+
+        assertThat(draw(new RequestMix(catalog, properties), 500))
+                .isEqualTo(draw(new RequestMix(catalog, properties), 500));
+    }
+
+    @Test
+    void ratios_ControlShareOfFailingOrders() {
+        Map<Kind, Long> kinds = draw(new RequestMix(catalog, properties(List.of(), 0, 0.2, 0.1)), 20000).stream()
+                .collect(Collectors.groupingBy(PlannedOrder::kind, Collectors.counting()));
+
+        assertThat(kinds.get(Kind.INSUFFICIENT_STOCK) / 20000.0).isCloseTo(0.2, within(0.02));
+        assertThat(kinds.get(Kind.INSUFFICIENT_FUNDS) / 20000.0).isCloseTo(0.1, within(0.02));
+        assertThat(kinds.get(Kind.ORDINARY) / 20000.0).isCloseTo(0.7, within(0.02));
+    }
+
+    @Test
+    void failingOrders_ExceedStockOrBalance() {
+        Map<String, CatalogUser> users = catalog.users().stream()
+                .collect(Collectors.toMap(CatalogUser::username, Function.identity()));
+        Map<String, CatalogProduct> products = catalog.products().stream()
+                .collect(Collectors.toMap(CatalogProduct::name, Function.identity()));
+
+        for (PlannedOrder order : draw(new RequestMix(catalog, properties(List.of(), 0, 0.5, 0.5)), 1000)) {
+            CatalogProduct product = products.get(order.productName());
+            if (order.kind() == Kind.INSUFFICIENT_STOCK) {
+                assertThat(order.quantity()).isGreaterThan(product.quantity());
+            } else {
+//                must get past the stock check so that it fails on the debit
+                assertThat(order.quantity()).isLessThanOrEqualTo(product.quantity());
+                assertThat(order.quantity() * product.price()).isGreaterThan(users.get(order.username()).balance());
+            }
+        }
+    }
+
+    @Test
+    void skew_FavoursFirstUser() {
+        Map<String, Long> perUser = draw(new RequestMix(catalog, properties(List.of(), 2.0, 0, 0)), 10000).stream()
+                .collect(Collectors.groupingBy(PlannedOrder::username, Collectors.counting()));
+
+        assertThat(perUser.get("filipgav")).isGreaterThan(perUser.get("gavro"));
+        assertThat(perUser.get("gavro")).isGreaterThan(perUser.get("aleksandar"));
+    }
+
+    @Test
+    void configuredUsers_LimitAndOrderTheMix() {
+        RequestMix mix = new RequestMix(catalog, properties(List.of("aleksandar", "gavro"), 0, 0, 0));
+
+        assertThat(mix.usernames()).containsExactly("aleksandar", "gavro");
+        assertThat(draw(mix, 200)).extracting(PlannedOrder::username).containsOnly("aleksandar", "gavro");
+    }
+
+    @Test
+    void unknownUser_IsRejected() {
+        assertThatThrownBy(() -> new RequestMix(catalog, properties(List.of("nobody"), 0, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("nobody");
+    }
+}
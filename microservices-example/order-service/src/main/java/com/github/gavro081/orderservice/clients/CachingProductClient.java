@@ -0,0 +1,56 @@
+package com.github.gavro081.orderservice.clients;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.gavro081.common.dto.ProductDetailDto;
+import com.github.gavro081.orderservice.config.LookupCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size- and TTL-bounded cache in front of the product-service Feign client.
+ * Entries are evicted early when product-service publishes a ProductChangedEvent,
+ * and concurrent misses for the same name are coalesced into one remote call.
+ */
+@Component
+@Primary
+public class CachingProductClient implements ProductClient {
+    private final ProductClient delegate;
+    private final Cache<String, ProductDetailDto> cache;
+    private final SingleFlight<String, ProductDetailDto> singleFlight;
+
+    public CachingProductClient(@Qualifier(ProductClient.FEIGN_QUALIFIER) ProductClient delegate,
+                                LookupCacheProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.productTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lookup.products");
+        this.singleFlight = new SingleFlight<>("products", meterRegistry);
+    }
+
+    @Override
+    public ProductDetailDto getProductByName(String productName) {
+        ProductDetailDto cached = cache.getIfPresent(productName);
+        if (cached != null) {
+            return cached;
+        }
+//        on a miss, concurrent callers for the same key share a single remote call
+        ProductDetailDto product = singleFlight.execute(productName, delegate::getProductByName);
+        if (product != null) {
+            cache.put(productName, product);
+        }
+        return product;
+    }
+
+//    the cache is keyed by name, but a rename means the old name is no longer known, so match on id
+    public void evict(Long productId) {
+        cache.asMap().values().removeIf(product -> product.id().equals(productId));
+    }
+}
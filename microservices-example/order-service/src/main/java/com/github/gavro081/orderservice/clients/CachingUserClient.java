@@ -0,0 +1,55 @@
+package com.github.gavro081.orderservice.clients;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.gavro081.common.dto.UserDetailDto;
+import com.github.gavro081.orderservice.config.LookupCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size- and TTL-bounded cache in front of the user-service Feign client.
+ * Entries are evicted early when user-service publishes a UserChangedEvent,
+ * and concurrent misses for the same username are coalesced into one remote call.
+ */
+@Component
+@Primary
+public class CachingUserClient implements UserClient {
+    private final UserClient delegate;
+    private final Cache<String, UserDetailDto> cache;
+    private final SingleFlight<String, UserDetailDto> singleFlight;
+
+    public CachingUserClient(@Qualifier(UserClient.FEIGN_QUALIFIER) UserClient delegate,
+                             LookupCacheProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.userTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lookup.users");
+        this.singleFlight = new SingleFlight<>("users", meterRegistry);
+    }
+
+    @Override
+    public UserDetailDto getUserByUsername(String username) {
+        UserDetailDto cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+//        on a miss, concurrent callers for the same key share a single remote call
+        UserDetailDto user = singleFlight.execute(username, delegate::getUserByUsername);
+        if (user != null) {
+            cache.put(username, user);
+        }
+        return user;
+    }
+
+    public void evict(Long userId) {
+        cache.asMap().values().removeIf(user -> user.id().equals(userId));
+    }
+}
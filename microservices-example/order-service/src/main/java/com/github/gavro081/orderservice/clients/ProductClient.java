@@ -5,8 +5,9 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
-@FeignClient(name = "product-service")
+@FeignClient(name = "product-service", qualifiers = ProductClient.FEIGN_QUALIFIER, primary = false)
 public interface ProductClient {
+    String FEIGN_QUALIFIER = "productServiceFeignClient";
 
     @GetMapping("/products/by-name/{productName}")
     ProductDetailDto getProductByName(@PathVariable("productName") String productName);
@@ -0,0 +1,95 @@
+package com.github.gavro081.orderservice.clients;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Request coalescing: while a remote lookup for a key is in flight, concurrent callers asking
+ * for the same key wait for that call and share its result (or exception) instead of issuing
+ * their own. Nothing is remembered once the call completes; caching is the caller's job.
+ * <p>
+ * Meters are tagged by lookup only. Which keys get coalesced is kept in a small bounded map of
+ * recently coalesced keys (see {@link #hottestKeys}), whose top count is the one per-key gauge.
+ */
+public class SingleFlight<K, V> {
+    private static final int TRACKED_KEYS = 100;
+    private static final Duration TRACKING_WINDOW = Duration.ofMinutes(5);
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<K, LongAdder> coalescedByKey = Caffeine.newBuilder()
+            .maximumSize(TRACKED_KEYS)
+            .expireAfterWrite(TRACKING_WINDOW)
+            .build();
+    private final Counter calls;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.calls = meterRegistry.counter("lookup.singleflight.calls", "lookup", name);
+        this.coalesced = meterRegistry.counter("lookup.singleflight.coalesced", "lookup", name);
+        Gauge.builder("lookup.singleflight.coalesced.hottest.key", this,
+                        singleFlight -> singleFlight.hottestKeys(1).values().stream().findFirst().orElse(0L))
+                .description("Most waiters coalesced onto a single key within the tracking window")
+                .tag("lookup", name)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Function<K, V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            coalescedByKey.get(key, k -> new LongAdder()).increment();
+            return await(existing);
+        }
+
+        calls.increment();
+        try {
+            V value = loader.apply(key);
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+//            Errors too, or the waiters would block in join() forever
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * The most coalesced keys among those seen recently, with their counts, highest first.
+     */
+    public Map<K, Long> hottestKeys(int limit) {
+        Map<K, Long> hottest = new LinkedHashMap<>();
+        coalescedByKey.asMap().entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<K, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(entry -> hottest.put(entry.getKey(), entry.getValue()));
+        return hottest;
+    }
+
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+//            rethrow the leader's exception as-is, so callers see e.g. ResourceNotFoundException
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
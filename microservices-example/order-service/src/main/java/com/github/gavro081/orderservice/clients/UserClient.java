@@ -5,8 +5,9 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
-@FeignClient(name = "user-service")
+@FeignClient(name = "user-service", qualifiers = UserClient.FEIGN_QUALIFIER, primary = false)
 public interface UserClient {
+    String FEIGN_QUALIFIER = "userServiceFeignClient";
 
     @GetMapping("/users/by-username/{username}")
     UserDetailDto getUserByUsername(@PathVariable("username") String username);
@@ -0,0 +1,36 @@
+package com.github.gavro081.orderservice.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * orders.created_at was added to a table that already had rows, and ddl-auto=update adds it as a
+ * nullable column without filling it in. Before the app takes requests this dates the old rows
+ * (by their finish timestamp, or now for orders still in flight) and then makes the column
+ * NOT NULL, so the order list, per-user history and the export all see the same orders.
+ * <p>
+ * Runs on every start; once the column is filled both statements change nothing. The mapping
+ * itself stays nullable because update would otherwise try to add a NOT NULL column to a
+ * non-empty table, which Postgres refuses.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+class CreatedAtBackfill {
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void backfill() {
+        int backfilled = jdbcTemplate.update(
+                "UPDATE orders SET created_at = COALESCE(timestamp, CURRENT_TIMESTAMP) WHERE created_at IS NULL");
+        if (backfilled > 0) {
+            log.info("Backfilled created_at on {} orders", backfilled);
+        }
+        jdbcTemplate.execute("ALTER TABLE orders ALTER COLUMN created_at SET NOT NULL");
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.gavro081.orderservice.config;
+
+import com.github.gavro081.orderservice.exceptions.ExternalServiceException;
+import com.github.gavro081.orderservice.exceptions.ResourceNotFoundException;
+import feign.RetryableException;
+import feign.codec.ErrorDecoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FeignConfig {
+//    maps downstream error responses to our own exceptions, so GlobalExceptionHandler
+//    can answer with 404/500 and callers can tell "not found" apart from an outage
+    @Bean
+    ErrorDecoder feignErrorDecoder() {
+        ErrorDecoder defaultDecoder = new ErrorDecoder.Default();
+        return (methodKey, response) -> {
+            if (response.status() == 404) {
+                return new ResourceNotFoundException(notFoundMessage(methodKey));
+            }
+            Exception exception = defaultDecoder.decode(methodKey, response);
+            if (exception instanceof RetryableException) {
+                return exception;
+            }
+            return new ExternalServiceException(
+                    "Call to " + methodKey + " failed with status " + response.status(), exception);
+        };
+    }
+
+    private static String notFoundMessage(String methodKey) {
+        if (methodKey.startsWith("UserClient")) return "User not found";
+        if (methodKey.startsWith("ProductClient")) return "Product not found";
+        return "Resource not found";
+    }
+}
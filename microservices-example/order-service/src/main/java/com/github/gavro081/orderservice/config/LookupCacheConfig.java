@@ -0,0 +1,32 @@
+package com.github.gavro081.orderservice.config;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(LookupCacheProperties.class)
+public class LookupCacheConfig {
+//    every order-service instance keeps its own cache, so each one needs its own
+//    (exclusive, auto-delete) queue instead of competing for messages on orders_queue
+    @Bean
+    Queue lookupCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    Binding productChangedBinding(Queue lookupCacheInvalidationQueue, TopicExchange exchange) {
+        return BindingBuilder.bind(lookupCacheInvalidationQueue).to(exchange).with(RabbitMQConfig.PRODUCT_CHANGED_KEY);
+    }
+
+    @Bean
+    Binding userChangedBinding(Queue lookupCacheInvalidationQueue, TopicExchange exchange) {
+        return BindingBuilder.bind(lookupCacheInvalidationQueue).to(exchange).with(RabbitMQConfig.USER_CHANGED_KEY);
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.gavro081.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Bounds for the user/product lookup caches. productTtl is the longest a cached price
+ * can be served after it changed, even if the invalidation event is lost.
+ */
+@ConfigurationProperties("microservices.lookup-cache")
+public record LookupCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("30s") Duration productTtl,
+        @DefaultValue("10m") Duration userTtl) {
+}
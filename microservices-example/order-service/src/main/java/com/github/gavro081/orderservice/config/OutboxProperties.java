@@ -0,0 +1,17 @@
+package com.github.gavro081.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Tuning for the outbox relay: how many events it publishes per round trip, how long it
+ * waits for the broker to confirm them and how often it polls the outbox table.
+ */
+@ConfigurationProperties("microservices.outbox")
+public record OutboxProperties(
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("100ms") Duration flushInterval,
+        @DefaultValue("5s") Duration confirmTimeout) {
+}
@@ -1,6 +1,9 @@
 package com.github.gavro081.orderservice.controllers;
 
+import com.github.gavro081.orderservice.exceptions.BatchTooLargeException;
 import com.github.gavro081.orderservice.exceptions.ExternalServiceException;
+import com.github.gavro081.orderservice.exceptions.InvalidCursorException;
+import com.github.gavro081.orderservice.exceptions.LookupTimeoutException;
 import com.github.gavro081.orderservice.exceptions.ResourceNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,5 +22,19 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleExternalServiceException(ExternalServiceException ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An external service error occurred.");
     }
-}
 
+    @ExceptionHandler(LookupTimeoutException.class)
+    public ResponseEntity<String> handleLookupTimeoutException(LookupTimeoutException ex) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<String> handleBatchTooLargeException(BatchTooLargeException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+}
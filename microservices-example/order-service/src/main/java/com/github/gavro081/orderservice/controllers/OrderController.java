@@ -1,29 +1,78 @@
 package com.github.gavro081.orderservice.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.gavro081.orderservice.dao.OrderLineResult;
+import com.github.gavro081.orderservice.dao.OrderPage;
 import com.github.gavro081.orderservice.dao.OrderRequest;
+import com.github.gavro081.orderservice.exceptions.BatchTooLargeException;
 import com.github.gavro081.orderservice.models.Order;
+import com.github.gavro081.orderservice.models.OrderStatus;
+import com.github.gavro081.orderservice.services.OrderQueryService;
 import com.github.gavro081.orderservice.services.OrderService;
 import jakarta.validation.Valid;
 import org.apache.coyote.Response;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/orders")
 class OrderController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
     private final OrderService orderService;
+    private final OrderQueryService orderQueryService;
+    private final ObjectWriter orderWriter;
+    private final int maxBatchSize;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderQueryService orderQueryService, ObjectMapper objectMapper,
+                           @Value("${microservices.orders.max-batch-size:500}") int maxBatchSize) {
         this.orderService = orderService;
+        this.maxBatchSize = maxBatchSize;
+        this.orderQueryService = orderQueryService;
+        this.orderWriter = objectMapper.writerFor(Order.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @GetMapping()
-    List<Order> getOrders(){
-        return orderService.getOrders();
+    OrderPage getOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return orderQueryService.getOrders(status, userId, cursor, limit);
+    }
+
+    @GetMapping("/by-user/{userId}")
+    OrderPage getOrdersByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return orderQueryService.getOrdersByUser(userId, cursor, limit);
+    }
+
+    @GetMapping("/export")
+    ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) Long userId) {
+//        one JSON document per line, written as rows come off the database cursor
+        StreamingResponseBody body = outputStream -> orderQueryService.exportOrders(status, userId, order -> {
+            try {
+                orderWriter.writeValue(outputStream, order);
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @PostMapping()
@@ -33,6 +82,18 @@ class OrderController {
         return ResponseEntity.accepted().body(orderId);
     }
 
+    @PostMapping("/batch")
+    ResponseEntity<List<OrderLineResult>> postOrders(
+            @RequestBody List<@Valid OrderRequest> orderRequests) {
+//        every line is resolved and written in one request, so bound how much one caller can ask for
+        if (orderRequests.size() > maxBatchSize) {
+            throw new BatchTooLargeException(
+                    "Batch of " + orderRequests.size() + " orders exceeds the limit of " + maxBatchSize);
+        }
+        List<OrderLineResult> results = orderService.createOrders(orderRequests);
+        return ResponseEntity.accepted().body(results);
+    }
+
     @GetMapping("/last")
     ResponseEntity<Order> getLastOrder(){
         Order order = orderService.getLastOrder();
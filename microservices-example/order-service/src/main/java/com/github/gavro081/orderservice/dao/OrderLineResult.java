@@ -0,0 +1,13 @@
+package com.github.gavro081.orderservice.dao;
+
+import java.util.UUID;
+
+public record OrderLineResult(UUID orderId, String error) {
+    public static OrderLineResult accepted(UUID orderId) {
+        return new OrderLineResult(orderId, null);
+    }
+
+    public static OrderLineResult rejected(String error) {
+        return new OrderLineResult(null, error);
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.gavro081.orderservice.dao;
+
+import com.github.gavro081.orderservice.models.Order;
+
+import java.util.List;
+
+/**
+ * One page of orders, newest first. {@code nextCursor} is null on the last page.
+ */
+public record OrderPage(List<Order> orders, String nextCursor) {
+}
@@ -1,5 +1,6 @@
 package com.github.gavro081.orderservice.dao;
 
+import jakarta.validation.constraints.NotBlank;
 
-public record OrderRequest(String username, String productName, String quantity) {
-}
\ No newline at end of file
+public record OrderRequest(@NotBlank String username, @NotBlank String productName, @NotBlank String quantity) {
+}
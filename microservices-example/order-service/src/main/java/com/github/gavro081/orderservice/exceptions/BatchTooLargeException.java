@@ -0,0 +1,7 @@
+package com.github.gavro081.orderservice.exceptions;
+
+public class BatchTooLargeException extends RuntimeException {
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.gavro081.orderservice.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
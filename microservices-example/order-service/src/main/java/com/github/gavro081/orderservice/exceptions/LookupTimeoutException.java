@@ -0,0 +1,7 @@
+package com.github.gavro081.orderservice.exceptions;
+
+public class LookupTimeoutException extends ExternalServiceException {
+    public LookupTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
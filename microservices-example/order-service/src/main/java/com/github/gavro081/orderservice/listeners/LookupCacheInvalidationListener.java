@@ -0,0 +1,36 @@
+package com.github.gavro081.orderservice.listeners;
+
+import com.github.gavro081.common.events.ProductChangedEvent;
+import com.github.gavro081.common.events.UserChangedEvent;
+import com.github.gavro081.orderservice.clients.CachingProductClient;
+import com.github.gavro081.orderservice.clients.CachingUserClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RabbitListener(queues = "#{lookupCacheInvalidationQueue.name}")
+public class LookupCacheInvalidationListener {
+    private static final Logger log = LoggerFactory.getLogger(LookupCacheInvalidationListener.class);
+    private final CachingProductClient productClient;
+    private final CachingUserClient userClient;
+
+    public LookupCacheInvalidationListener(CachingProductClient productClient, CachingUserClient userClient) {
+        this.productClient = productClient;
+        this.userClient = userClient;
+    }
+
+    @RabbitHandler
+    public void handleProductChanged(ProductChangedEvent event){
+        log.info("Evicting product {} ({}) from lookup cache", event.getProductId(), event.getProductName());
+        productClient.evict(event.getProductId());
+    }
+
+    @RabbitHandler
+    public void handleUserChanged(UserChangedEvent event){
+        log.info("Evicting user {} ({}) from lookup cache", event.getUserId(), event.getUsername());
+        userClient.evict(event.getUserId());
+    }
+}
@@ -14,7 +14,10 @@ import java.util.UUID;
 
 @Entity
 @Data
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at DESC, id DESC"),
+        @Index(name = "idx_orders_user_created_at", columnList = "user_id, created_at DESC, id DESC")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,5 +42,11 @@ public class Order {
     @NotNull(message = "Status is required")
     private OrderStatus status;
 
+//    set once when the order finishes (COMPLETED/FAILED)
     private Instant timestamp;
+
+//    set once in createOrder and never updated, so it is safe to page on. rows from before the
+//    column existed are filled in and the column made NOT NULL by CreatedAtBackfill
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
 }
@@ -0,0 +1,47 @@
+package com.github.gavro081.orderservice.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An event waiting to be published, written in the same transaction as the order it belongs to.
+ * The payload is the already-converted message body, so the relay sends exactly what was stored.
+ */
+@Entity
+@Data
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_events_created_at", columnList = "created_at"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    @Column(name = "type_id")
+    private String typeId;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "partition_key")
+    private String partitionKey;
+
+    @Column(nullable = false, length = 65536)
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
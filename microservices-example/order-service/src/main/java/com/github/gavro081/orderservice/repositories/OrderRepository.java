@@ -1,12 +1,85 @@
 package com.github.gavro081.orderservice.repositories;
 
 import com.github.gavro081.orderservice.models.Order;
+import com.github.gavro081.orderservice.models.OrderStatus;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
-    Order findTopByTimestampIsNotNullOrderByTimestampDesc();
+//    the most recently finished order; pending ones never qualify
+    Order findTopByStatusInAndTimestampIsNotNullOrderByTimestampDesc(Collection<OrderStatus> statuses);
+
+//    compare-and-set on status: only one of several racing saga events can move an order out of
+//    the expected state. commits on its own so callers only react to a durable change. returns 0 or 1
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :newStatus, o.timestamp = :timestamp WHERE o.id = :id AND o.status = :expectedStatus")
+    int transitionStatus(@Param("id") UUID id,
+                         @Param("expectedStatus") OrderStatus expectedStatus,
+                         @Param("newStatus") OrderStatus newStatus,
+                         @Param("timestamp") Instant timestamp);
+
+    @Query("""
+            SELECT o FROM Order o
+            WHERE (:status IS NULL OR o.status = :status)
+              AND (:userId IS NULL OR o.userId = :userId)
+            ORDER BY o.createdAt DESC, o.id DESC""")
+    List<Order> findFirstPage(@Param("status") OrderStatus status,
+                              @Param("userId") Long userId,
+                              Limit limit);
+
+//    keyset predicate: strictly after the (created_at, id) of the previous page's last row.
+//    created_at never changes, so an order finishing mid-scroll keeps its place
+    @Query("""
+            SELECT o FROM Order o
+            WHERE (:status IS NULL OR o.status = :status)
+              AND (:userId IS NULL OR o.userId = :userId)
+              AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id))
+            ORDER BY o.createdAt DESC, o.id DESC""")
+    List<Order> findPageAfter(@Param("status") OrderStatus status,
+                              @Param("userId") Long userId,
+                              @Param("createdAt") Instant createdAt,
+                              @Param("id") UUID id,
+                              Limit limit);
+
+//    per-user history, served by idx_orders_user_created_at without a sort step
+    List<Order> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Limit limit);
+
+    @Query("""
+            SELECT o FROM Order o
+            WHERE o.userId = :userId
+              AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id))
+            ORDER BY o.createdAt DESC, o.id DESC""")
+    List<Order> findByUserIdAfter(@Param("userId") Long userId,
+                                  @Param("createdAt") Instant createdAt,
+                                  @Param("id") UUID id,
+                                  Limit limit);
+
+//    rows are pulled from a server-side cursor fetch-size at a time instead of being loaded up front
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT o FROM Order o
+            WHERE (:status IS NULL OR o.status = :status)
+              AND (:userId IS NULL OR o.userId = :userId)
+            ORDER BY o.createdAt DESC, o.id DESC""")
+    Stream<Order> streamOrders(@Param("status") OrderStatus status,
+                               @Param("userId") Long userId);
 }
@@ -0,0 +1,118 @@
+package com.github.gavro081.orderservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.gavro081.orderservice.dao.OrderCursor;
+import com.github.gavro081.orderservice.dao.OrderPage;
+import com.github.gavro081.orderservice.models.Order;
+import com.github.gavro081.orderservice.models.OrderStatus;
+import com.github.gavro081.orderservice.repositories.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the orders table: keyset-paginated listings and a streaming export.
+ * The first page of a user's history is briefly cached, since the order status UI polls it.
+ */
+@Service
+public class OrderQueryService {
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+//    null when the cache is disabled (ttl of zero)
+    private final Cache<FirstPageKey, OrderPage> userFirstPageCache;
+
+    private record FirstPageKey(Long userId, int pageSize) {}
+
+    public OrderQueryService(OrderRepository orderRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${microservices.orders.user-first-page-cache-ttl:2s}") Duration userFirstPageCacheTtl,
+                             MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        if (userFirstPageCacheTtl.isZero()) {
+            this.userFirstPageCache = null;
+        } else {
+            this.userFirstPageCache = Caffeine.newBuilder()
+                    .maximumSize(10_000)
+                    .expireAfterWrite(userFirstPageCacheTtl)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, userFirstPageCache, "orders.user-first-page");
+        }
+    }
+
+    public OrderPage getOrders(OrderStatus status, Long userId, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+//        fetch one extra row to know whether there is a next page without a count query
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<Order> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findFirstPage(status, userId, fetchLimit);
+        } else {
+            OrderCursor after = OrderCursor.decode(cursor);
+            orders = orderRepository.findPageAfter(status, userId, after.createdAt(), after.id(), fetchLimit);
+        }
+
+        return toPage(orders, pageSize);
+    }
+
+    public OrderPage getOrdersByUser(Long userId, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        if (cursor == null || cursor.isBlank()) {
+            if (userFirstPageCache == null) {
+                return fetchUserFirstPage(userId, pageSize);
+            }
+            return userFirstPageCache.get(new FirstPageKey(userId, pageSize),
+                    key -> fetchUserFirstPage(key.userId(), key.pageSize()));
+        }
+        OrderCursor after = OrderCursor.decode(cursor);
+        return toPage(orderRepository.findByUserIdAfter(
+                userId, after.createdAt(), after.id(), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    private OrderPage fetchUserFirstPage(Long userId, int pageSize) {
+        return toPage(orderRepository.findByUserIdOrderByCreatedAtDescIdDesc(
+                userId, Limit.of(pageSize + 1)), pageSize);
+    }
+
+    private static OrderPage toPage(List<Order> orders, int pageSize) {
+        if (orders.size() <= pageSize) {
+            return new OrderPage(orders, null);
+        }
+        List<Order> page = List.copyOf(orders.subList(0, pageSize));
+        return new OrderPage(page, OrderCursor.of(page.getLast()).encode());
+    }
+
+    /**
+     * Hands every matching order to {@code sink} while scrolling a database cursor. Each row is
+     * detached once consumed, so the persistence context (and heap) stays flat however many rows match.
+     */
+    public void exportOrders(OrderStatus status, Long userId, Consumer<Order> sink) {
+//        the Postgres driver only honours the fetch size inside a transaction
+        readOnlyTransaction.executeWithoutResult(transactionStatus -> {
+            try (Stream<Order> orders = orderRepository.streamOrders(status, userId)) {
+                orders.forEach(order -> {
+                    sink.accept(order);
+                    entityManager.detach(order);
+                });
+            }
+        });
+    }
+}
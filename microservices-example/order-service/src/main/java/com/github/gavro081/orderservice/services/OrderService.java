@@ -6,97 +6,219 @@ import com.github.gavro081.common.dto.UserDetailDto;
 import com.github.gavro081.common.events.OrderCreatedEvent;
 import com.github.gavro081.orderservice.clients.ProductClient;
 import com.github.gavro081.orderservice.clients.UserClient;
+import com.github.gavro081.orderservice.dao.OrderLineResult;
 import com.github.gavro081.orderservice.dao.OrderRequest;
-import com.github.gavro081.orderservice.exceptions.OrderNotFoundException;
+import com.github.gavro081.orderservice.exceptions.ExternalServiceException;
+import com.github.gavro081.orderservice.exceptions.LookupTimeoutException;
+import com.github.gavro081.orderservice.exceptions.ResourceNotFoundException;
 import com.github.gavro081.orderservice.models.Order;
 import com.github.gavro081.orderservice.models.OrderStatus;
 import com.github.gavro081.orderservice.repositories.OrderRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Service
 public class OrderService {
     private final OrderRepository orderRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
     private final Logger logger = LoggerFactory.getLogger(OrderService.class);
     private final NotificationService notificationService;
     private final ProductClient productClient;
     private final UserClient userClient;
+//    user and product lookups are blocking Feign calls, so they run side by side on virtual threads
+    private final ExecutorService lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration lookupTimeout;
 
     public OrderService(OrderRepository orderRepository,
-                        RabbitTemplate rabbitTemplate,
+                        OutboxService outboxService,
+                        TransactionTemplate transactionTemplate,
                         NotificationService notificationService,
                         ProductClient productClient,
-                        UserClient userClient) {
+                        UserClient userClient,
+                        @Value("${microservices.orders.lookup-timeout:3s}") Duration lookupTimeout) {
         this.orderRepository = orderRepository;
-        this.rabbitTemplate = rabbitTemplate;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
         this.notificationService = notificationService;
         this.productClient = productClient;
         this.userClient = userClient;
+        this.lookupTimeout = lookupTimeout;
     }
 
-    private Order getOrderById(UUID orderId) throws OrderNotFoundException{
-        return orderRepository
-                .findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order " + orderId + "is not found"));
-    }
-
-    public List<Order> getOrders(){
-        return orderRepository.findAll();
+//    lets lookups already in flight finish, so requests still being served at shutdown complete
+    @PreDestroy
+    void shutdown() {
+        lookupExecutor.close();
     }
 
     public UUID createOrder(OrderRequest orderRequest){
-        UserDetailDto userDto = userClient.getUserByUsername(orderRequest.username());
-        ProductDetailDto productDto = productClient.getProductByName(orderRequest.productName());
+        long deadline = System.nanoTime() + lookupTimeout.toNanos();
+        CompletableFuture<UserDetailDto> userLookup = CompletableFuture.supplyAsync(
+                () -> userClient.getUserByUsername(orderRequest.username()), lookupExecutor);
+        CompletableFuture<ProductDetailDto> productLookup = CompletableFuture.supplyAsync(
+                () -> productClient.getProductByName(orderRequest.productName()), lookupExecutor);
+
+        UserDetailDto userDto;
+        ProductDetailDto productDto;
+        try {
+            userDto = awaitLookup(userLookup, deadline);
+            productDto = awaitLookup(productLookup, deadline);
+        } finally {
+            productLookup.cancel(false);
+        }
 
         Order newOrder = Order.builder()
                 .userId(userDto.id())
                 .productId(productDto.id())
                 .quantity(Integer.parseInt(orderRequest.quantity()))
                 .status(OrderStatus.PENDING)
+                .createdAt(Instant.now())
                 .build();
 
-        Order savedOrder = orderRepository.save(newOrder);
+//        the order and its event commit together; OutboxRelay publishes the event afterwards
+        Order savedOrder = transactionTemplate.execute(status -> {
+            Order order = orderRepository.save(newOrder);
+            outboxService.enqueue(RabbitMQConfig.EXCHANGE_NAME, "order.created", new OrderCreatedEvent(
+                    order.getId(),
+                    order.getProductId().toString(),
+                    order.getUserId().toString(),
+                    order.getQuantity(),
+                    orderRequest.username()
+            ));
+            return order;
+        });
         logger.info("created order with id {}", savedOrder.getId());
-        OrderCreatedEvent event = new OrderCreatedEvent(
-                savedOrder.getId(),
-                savedOrder.getProductId().toString(),
-                savedOrder.getUserId().toString(),
-                savedOrder.getQuantity(),
-                orderRequest.username()
-        );
-        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, "order.created", event);
         return savedOrder.getId();
     }
 
-    public void updateOrderStatus(String username, UUID orderId, OrderStatus newStatus) {
-        Order order;
+    public List<OrderLineResult> createOrders(List<OrderRequest> orderRequests){
+//        each distinct username / product name is resolved once for the whole batch
+        Map<String, UserDetailDto> users = new HashMap<>();
+        orderRequests.stream().map(OrderRequest::username).filter(Objects::nonNull).distinct()
+                .forEach(username -> resolve(username, userClient::getUserByUsername, users));
+        Map<String, ProductDetailDto> products = new HashMap<>();
+        orderRequests.stream().map(OrderRequest::productName).filter(Objects::nonNull).distinct()
+                .forEach(productName -> resolve(productName, productClient::getProductByName, products));
+
+        OrderLineResult[] results = new OrderLineResult[orderRequests.size()];
+        List<Integer> acceptedLines = new ArrayList<>();
+        List<Order> newOrders = new ArrayList<>();
+        for (int i = 0; i < orderRequests.size(); i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            UserDetailDto userDto = users.get(orderRequest.username());
+            ProductDetailDto productDto = products.get(orderRequest.productName());
+            Integer quantity = parseQuantity(orderRequest.quantity());
+            if (userDto == null) {
+                results[i] = OrderLineResult.rejected("User not found");
+            } else if (productDto == null) {
+                results[i] = OrderLineResult.rejected("Product not found");
+            } else if (quantity == null) {
+                results[i] = OrderLineResult.rejected("Invalid quantity");
+            } else {
+                acceptedLines.add(i);
+                newOrders.add(Order.builder()
+                        .userId(userDto.id())
+                        .productId(productDto.id())
+                        .quantity(quantity)
+                        .status(OrderStatus.PENDING)
+                        .createdAt(Instant.now())
+                        .build());
+            }
+        }
+        if (newOrders.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+//        orders and outbox rows go in as batched inserts (see hibernate.jdbc.batch_size) in one transaction
+        List<Order> savedOrders = transactionTemplate.execute(status -> {
+            List<Order> orders = orderRepository.saveAll(newOrders);
+            for (int j = 0; j < orders.size(); j++) {
+                Order savedOrder = orders.get(j);
+                outboxService.enqueue(RabbitMQConfig.EXCHANGE_NAME, "order.created", new OrderCreatedEvent(
+                        savedOrder.getId(),
+                        savedOrder.getProductId().toString(),
+                        savedOrder.getUserId().toString(),
+                        savedOrder.getQuantity(),
+                        orderRequests.get(acceptedLines.get(j)).username()
+                ));
+            }
+            return orders;
+        });
+        logger.info("created {} orders from a batch of {}", savedOrders.size(), orderRequests.size());
+        for (int j = 0; j < savedOrders.size(); j++) {
+            results[acceptedLines.get(j)] = OrderLineResult.accepted(savedOrders.get(j).getId());
+        }
+        return Arrays.asList(results);
+    }
+
+    private <T> T awaitLookup(CompletableFuture<T> lookup, long deadline) {
+        try {
+            return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ResourceNotFoundException notFound) throw notFound;
+            if (e.getCause() instanceof ExternalServiceException external) throw external;
+            throw new ExternalServiceException("Lookup failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new LookupTimeoutException("Timed out after " + lookupTimeout.toMillis() + "ms resolving user and product", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalServiceException("Interrupted while resolving user and product", e);
+        }
+    }
+
+    private <T> void resolve(String key, Function<String, T> lookup, Map<String, T> resolved) {
+        try {
+            resolved.put(key, lookup.apply(key));
+        } catch (ResourceNotFoundException e) {
+            logger.warn("Lookup for {} failed: {}", key, e.getMessage());
+        }
+    }
+
+    private static Integer parseQuantity(String quantity) {
         try {
-             order = getOrderById(orderId);
-        } catch (OrderNotFoundException e) {
-            logger.warn("Order {} not found.", orderId);
-            return;
+            int parsed = Integer.parseInt(quantity);
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
         }
-        if (order.getStatus() == OrderStatus.PENDING) {
-            order.setStatus(newStatus);
-            order.setTimestamp(Instant.now());
-            orderRepository.save(order);
+    }
+
+    public void updateOrderStatus(String username, UUID orderId, OrderStatus newStatus) {
+        int updated = orderRepository.transitionStatus(orderId, OrderStatus.PENDING, newStatus, Instant.now());
+        if (updated == 1) {
             logger.info("Order {} status updated to {}", orderId, newStatus);
             notificationService.notifyOrderStatusUpdate(username, orderId, newStatus);
         } else {
-            logger.warn("Order {} already in a final state ({}). Ignoring status update to {}",
-                    orderId, order.getStatus(), newStatus);
+            logger.warn("Order {} not found or already in a final state. Ignoring status update to {}",
+                    orderId, newStatus);
         }
     }
 
     public Order getLastOrder() {
-        return orderRepository.findTopByTimestampIsNotNullOrderByTimestampDesc();
+        return orderRepository.findTopByStatusInAndTimestampIsNotNullOrderByTimestampDesc(
+                List.of(OrderStatus.COMPLETED, OrderStatus.FAILED));
     }
 }
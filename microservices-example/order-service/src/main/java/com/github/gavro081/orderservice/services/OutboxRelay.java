@@ -0,0 +1,110 @@
+package com.github.gavro081.orderservice.services;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.orderservice.config.OutboxProperties;
+import com.github.gavro081.orderservice.models.OutboxEvent;
+import com.github.gavro081.orderservice.repositories.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox table in the background: publishes a batch, waits for the broker's
+ * publisher confirms and deletes only the rows that were acked. Nacked or unconfirmed rows
+ * stay in the table and are retried on the next flush.
+ */
+@Component
+public class OutboxRelay {
+    private final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       OutboxProperties properties) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${microservices.outbox.flush-interval:100ms}")
+    public void flush() {
+//        keep going while batches come back full, so a backlog drains without waiting for the next tick
+        Integer relayed;
+        do {
+            relayed = transactionTemplate.execute(status -> relayBatch());
+        } while (relayed != null && relayed == properties.batchSize());
+    }
+
+    int relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.findBatchForRelay(Limit.of(properties.batchSize()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CorrelationData> confirmations = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            CorrelationData correlationData = new CorrelationData(event.getId().toString());
+            rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), toMessage(event), correlationData);
+            confirmations.add(correlationData);
+        }
+
+        long deadline = System.nanoTime() + properties.confirmTimeout().toNanos();
+        List<UUID> acked = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (isAcked(confirmations.get(i), deadline)) {
+                acked.add(batch.get(i).getId());
+            }
+        }
+        outboxEventRepository.deleteAllByIdInBatch(acked);
+        if (acked.size() < batch.size()) {
+            logger.warn("{} of {} outbox events were not confirmed, will retry", batch.size() - acked.size(), batch.size());
+        }
+        return acked.size();
+    }
+
+    private boolean isAcked(CorrelationData correlationData, long deadline) {
+        try {
+            CorrelationData.Confirm confirm = correlationData.getFuture()
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return confirm.isAck();
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(event.getId().toString());
+        properties.setContentType(event.getContentType());
+        if (event.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, event.getTypeId());
+        }
+        if (event.getPartitionKey() != null) {
+            properties.setHeader(RabbitMQConfig.PARTITION_KEY_HEADER, event.getPartitionKey());
+        }
+        return new Message(event.getPayload(), properties);
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.gavro081.orderservice.services;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.orderservice.models.OutboxEvent;
+import com.github.gavro081.orderservice.repositories.OutboxEventRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Service
+public class OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+    private final MessageConverter messageConverter;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, MessageConverter messageConverter) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.messageConverter = messageConverter;
+    }
+
+//    must join the caller's transaction, otherwise the event could outlive a rolled back order
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueue(String exchange, String routingKey, Object event) {
+        Message message = messageConverter.toMessage(event, new MessageProperties());
+        MessageProperties properties = message.getMessageProperties();
+        Object typeId = properties.getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        Object partitionKey = properties.getHeader(RabbitMQConfig.PARTITION_KEY_HEADER);
+
+        outboxEventRepository.save(OutboxEvent.builder()
+                .exchange(exchange)
+                .routingKey(routingKey)
+                .typeId(typeId == null ? null : typeId.toString())
+                .contentType(properties.getContentType())
+                .partitionKey(partitionKey == null ? null : partitionKey.toString())
+                .payload(message.getBody())
+                .createdAt(Instant.now())
+                .build());
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.gavro081.orderservice.clients;
+
+import com.github.gavro081.common.dto.ProductDetailDto;
+import com.github.gavro081.orderservice.config.LookupCacheProperties;
+import com.github.gavro081.orderservice.exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingProductClientTest {
+
+    @Mock
+    private ProductClient delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingProductClient productClient;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productClient = new CachingProductClient(delegate,
+                new LookupCacheProperties(100, Duration.ofMinutes(1), Duration.ofMinutes(1)), meterRegistry);
+    }
+
+    @Test
+    void getProductByName_whenCalledTwice_shouldHitRemoteServiceOnce() {
+        when(delegate.getProductByName("mouse")).thenReturn(new ProductDetailDto(2L, 29.99));
+
+        productClient.getProductByName("mouse");
+        ProductDetailDto cached = productClient.getProductByName("mouse");
+
+        assertThat(cached.price()).isEqualTo(29.99);
+        verify(delegate, times(1)).getProductByName("mouse");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "lookup.products").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void evict_shouldForceFreshLookupForThatProduct() {
+        when(delegate.getProductByName("mouse"))
+                .thenReturn(new ProductDetailDto(2L, 29.99))
+                .thenReturn(new ProductDetailDto(2L, 24.99));
+
+        productClient.getProductByName("mouse");
+        productClient.evict(2L);
+
+        assertThat(productClient.getProductByName("mouse").price()).isEqualTo(24.99);
+        verify(delegate, times(2)).getProductByName("mouse");
+    }
+
+    @Test
+    void getProductByName_whenProductIsMissing_shouldNotCacheTheFailure() {
+        when(delegate.getProductByName("ghost")).thenThrow(new ResourceNotFoundException("Product not found"));
+
+        assertThatThrownBy(() -> productClient.getProductByName("ghost")).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> productClient.getProductByName("ghost")).isInstanceOf(ResourceNotFoundException.class);
+
+        verify(delegate, times(2)).getProductByName("ghost");
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.gavro081.orderservice.clients;
+
+import com.github.gavro081.orderservice.exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("products", meterRegistry);
+
+    @Test
+    void execute_whenCallersOverlap_shouldShareOneRemoteCall() throws Exception {
+        int callers = 8;
+        AtomicInteger remoteCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("macbook", key -> {
+                    remoteCalls.incrementAndGet();
+                    await(release);
+                    return key + "-details";
+                })));
+            }
+            // wait until every caller is either the leader or queued behind it
+            while (coalesced() < callers - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("macbook-details");
+            }
+        }
+        assertThat(remoteCalls.get()).isEqualTo(1);
+        assertThat(singleFlight.hottestKeys(5)).containsExactly(Map.entry("macbook", (long) callers - 1));
+        assertThat(meterRegistry.get("lookup.singleflight.coalesced.hottest.key").tag("lookup", "products").gauge().value())
+                .isEqualTo(callers - 1);
+    }
+
+    @Test
+    void meters_shouldNotBeTaggedPerKey() {
+        for (int i = 0; i < 50; i++) {
+            singleFlight.execute("product-" + i, key -> key);
+        }
+
+        assertThat(meterRegistry.find("lookup.singleflight.calls").counters()).hasSize(1);
+        assertThat(meterRegistry.get("lookup.singleflight.calls").tag("lookup", "products").counter().count()).isEqualTo(50);
+    }
+
+    @Test
+    void execute_whenLeaderFails_shouldPropagateAndNotRememberTheFailure() {
+        assertThatThrownBy(() -> singleFlight.execute("ghost", key -> {
+            throw new ResourceNotFoundException("Product not found");
+        })).isInstanceOf(ResourceNotFoundException.class);
+
+        assertThat(singleFlight.execute("ghost", key -> "found-later")).isEqualTo("found-later");
+    }
+
+    @Test
+    void execute_whenLeaderThrowsAnError_shouldReleaseTheWaitersWithIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("macbook", key -> {
+                    await(release);
+                    throw new Error("loader crashed");
+                })));
+            }
+            while (coalesced() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .hasCauseInstanceOf(Error.class)
+                        .hasRootCauseMessage("loader crashed");
+            }
+        }
+    }
+
+    private double coalesced() {
+        var counter = meterRegistry.find("lookup.singleflight.coalesced").tag("lookup", "products").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.gavro081.orderservice.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.gavro081.orderservice.dao.OrderRequest;
+import com.github.gavro081.orderservice.services.OrderQueryService;
+import com.github.gavro081.orderservice.services.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderControllerTest {
+    private static final int MAX_BATCH_SIZE = 2;
+
+    @Mock
+    private OrderService orderService;
+    @Mock
+    private OrderQueryService orderQueryService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        OrderController controller = new OrderController(orderService, orderQueryService, objectMapper, MAX_BATCH_SIZE);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setValidator(validator)
+                .build();
+    }
+
+    private void postBatch(List<OrderRequest> orderRequests, int expectedStatus) throws Exception {
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orderRequests)))
+                .andExpect(status().is(expectedStatus));
+    }
+
+    @Test
+    void postOrders_WithinLimit_IsAccepted() throws Exception {
+        when(orderService.createOrders(anyList())).thenReturn(List.of());
+
+        postBatch(List.of(new OrderRequest("test-user", "test-product", "1")), 202);
+
+        verify(orderService).createOrders(anyList());
+    }
+
+    @Test
+    void postOrders_OverTheLimit_IsRejectedWithoutTouchingTheService() throws Exception {
+        OrderRequest line = new OrderRequest("test-user", "test-product", "1");
+
+        postBatch(List.of(line, line, line), 400);
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void postOrders_WithABlankLine_IsRejectedWithoutTouchingTheService() throws Exception {
+        postBatch(List.of(
+                new OrderRequest("test-user", "test-product", "1"),
+                new OrderRequest("", "test-product", "1")), 400);
+
+        verifyNoInteractions(orderService);
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.gavro081.orderservice.services;
+
+import com.github.gavro081.orderservice.dao.OrderPage;
+import com.github.gavro081.orderservice.exceptions.InvalidCursorException;
+import com.github.gavro081.orderservice.models.Order;
+import com.github.gavro081.orderservice.models.OrderStatus;
+import com.github.gavro081.orderservice.repositories.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderQueryServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderQueryService orderQueryService;
+
+    @BeforeEach
+    void setUp() {
+        orderQueryService = new OrderQueryService(orderRepository, entityManager, transactionManager,
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void getOrders_shouldReturnCursorThatContinuesAfterLastRow() {
+        // Arrange
+        Instant now = Instant.now();
+        Order first = order(now);
+        Order second = order(now.minusSeconds(1));
+        Order third = order(now.minusSeconds(2));
+        when(orderRepository.findFirstPage(OrderStatus.COMPLETED, 1L, Limit.of(3)))
+                .thenReturn(List.of(first, second, third));
+        when(orderRepository.findPageAfter(OrderStatus.COMPLETED, 1L, second.getCreatedAt(), second.getId(), Limit.of(3)))
+                .thenReturn(List.of(third));
+
+        // Act
+        OrderPage firstPage = orderQueryService.getOrders(OrderStatus.COMPLETED, 1L, null, 2);
+        OrderPage secondPage = orderQueryService.getOrders(OrderStatus.COMPLETED, 1L, firstPage.nextCursor(), 2);
+
+        // Assert
+        assertThat(firstPage.orders()).containsExactly(first, second);
+        assertThat(firstPage.nextCursor()).isNotNull();
+        assertThat(secondPage.orders()).containsExactly(third);
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void getOrders_whenCursorIsMalformed_shouldThrowInvalidCursor() {
+        assertThatThrownBy(() -> orderQueryService.getOrders(null, null, "not-a-cursor", 10))
+                .isInstanceOf(InvalidCursorException.class);
+
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void getOrdersByUser_shouldServeRepeatedFirstPageFromCache() {
+        // Arrange
+        Order order = order(Instant.now());
+        when(orderRepository.findByUserIdOrderByCreatedAtDescIdDesc(1L, Limit.of(21)))
+                .thenReturn(List.of(order));
+
+        // Act
+        OrderPage firstCall = orderQueryService.getOrdersByUser(1L, null, 20);
+        OrderPage secondCall = orderQueryService.getOrdersByUser(1L, null, 20);
+
+        // Assert
+        assertThat(firstCall.orders()).containsExactly(order);
+        assertThat(secondCall).isSameAs(firstCall);
+        verify(orderRepository, times(1)).findByUserIdOrderByCreatedAtDescIdDesc(1L, Limit.of(21));
+    }
+
+    private static Order order(Instant createdAt) {
+        return Order.builder().id(UUID.randomUUID()).userId(1L).productId(101L).quantity(1)
+                .status(OrderStatus.COMPLETED).createdAt(createdAt).build();
+    }
+}
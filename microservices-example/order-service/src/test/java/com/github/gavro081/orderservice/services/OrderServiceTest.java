@@ -6,27 +6,33 @@ import com.github.gavro081.common.dto.UserDetailDto;
 import com.github.gavro081.common.events.OrderCreatedEvent;
 import com.github.gavro081.orderservice.clients.ProductClient;
 import com.github.gavro081.orderservice.clients.UserClient;
+import com.github.gavro081.orderservice.dao.OrderLineResult;
 import com.github.gavro081.orderservice.dao.OrderRequest;
 import com.github.gavro081.orderservice.exceptions.ExternalServiceException;
+import com.github.gavro081.orderservice.exceptions.LookupTimeoutException;
 import com.github.gavro081.orderservice.exceptions.ResourceNotFoundException;
 import com.github.gavro081.orderservice.models.Order;
 import com.github.gavro081.orderservice.models.OrderStatus;
 import com.github.gavro081.orderservice.repositories.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -41,7 +47,9 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private OutboxService outboxService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
     @Mock
     private NotificationService notificationService;
     @Mock
@@ -49,9 +57,16 @@ class OrderServiceTest {
     @Mock
     private ProductClient productClient; // Mock the Feign client
 
-    @InjectMocks
     private OrderService orderService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        orderService = new OrderService(orderRepository, outboxService, transactionTemplate, notificationService,
+                productClient, userClient, Duration.ofSeconds(1));
+    }
+
     @Test
     void createOrder_whenUserAndProductExist_shouldSaveOrderAndPublishEvent() {
         // Arrange
@@ -72,7 +87,7 @@ class OrderServiceTest {
         assertThat(orderId).isNotNull();
         assertThat(orderId).isEqualTo(savedOrder.getId());
         verify(orderRepository).save(any(Order.class));
-        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_NAME), eq("order.created"), any(OrderCreatedEvent.class));
+        verify(outboxService).enqueue(eq(RabbitMQConfig.EXCHANGE_NAME), eq("order.created"), any(OrderCreatedEvent.class));
     }
 
     @Test
@@ -88,7 +103,7 @@ class OrderServiceTest {
 
         // Verify no interactions with other dependencies
         verify(orderRepository, never()).save(any());
-        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+        verify(outboxService, never()).enqueue(anyString(), anyString(), any());
     }
 
     @Test
@@ -107,7 +122,7 @@ class OrderServiceTest {
                 .hasMessageContaining("Product not found");
 
         verify(orderRepository, never()).save(any());
-        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+        verify(outboxService, never()).enqueue(anyString(), anyString(), any());
     }
 
     @Test
@@ -122,27 +137,105 @@ class OrderServiceTest {
                 .hasMessageContaining("Service unavailable");
 
         verify(orderRepository, never()).save(any());
-        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+        verify(outboxService, never()).enqueue(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrder_shouldLookUpUserAndProductConcurrently() {
+        // Arrange: each lookup only completes once the other one has started
+        OrderRequest request = new OrderRequest("test-user", "test-product", "2");
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(userClient.getUserByUsername("test-user")).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            assertThat(bothStarted.await(1, TimeUnit.SECONDS)).isTrue();
+            return new UserDetailDto(1L);
+        });
+        when(productClient.getProductByName("test-product")).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            assertThat(bothStarted.await(1, TimeUnit.SECONDS)).isTrue();
+            return new ProductDetailDto(101L, 25.0);
+        });
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(UUID.randomUUID());
+            return order;
+        });
+
+        // Act
+        UUID orderId = orderService.createOrder(request);
+
+        // Assert
+        assertThat(orderId).isNotNull();
+    }
+
+    @Test
+    void createOrder_whenLookupExceedsTimeout_shouldThrowLookupTimeout() {
+        // Arrange
+        orderService = new OrderService(orderRepository, outboxService, transactionTemplate, notificationService,
+                productClient, userClient, Duration.ofMillis(100));
+        OrderRequest request = new OrderRequest("test-user", "test-product", "2");
+        when(userClient.getUserByUsername("test-user")).thenReturn(new UserDetailDto(1L));
+        when(productClient.getProductByName("test-product")).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return new ProductDetailDto(101L, 25.0);
+        });
+
+        // Act & Assert
+        assertThatThrownBy(() -> orderService.createOrder(request))
+                .isInstanceOf(LookupTimeoutException.class);
+
+        verify(orderRepository, never()).save(any());
+        verify(outboxService, never()).enqueue(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createOrders_shouldResolveEachNameOnceAndReportPerLineResults() {
+        // Arrange
+        List<OrderRequest> requests = List.of(
+                new OrderRequest("test-user", "test-product", "1"),
+                new OrderRequest("test-user", "test-product", "3"),
+                new OrderRequest("test-user", "nonexistent-product", "1"),
+                new OrderRequest("test-user", "test-product", "abc")
+        );
+        when(userClient.getUserByUsername("test-user")).thenReturn(new UserDetailDto(1L));
+        when(productClient.getProductByName("test-product")).thenReturn(new ProductDetailDto(101L, 25.0));
+        when(productClient.getProductByName("nonexistent-product")).thenThrow(new ResourceNotFoundException("Product not found"));
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setId(UUID.randomUUID()));
+            return orders;
+        });
+
+        // Act
+        List<OrderLineResult> results = orderService.createOrders(requests);
+
+        // Assert
+        verify(userClient, times(1)).getUserByUsername("test-user");
+        verify(productClient, times(1)).getProductByName("test-product");
+        verify(orderRepository, times(1)).saveAll(anyList());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(outboxService, times(2)).enqueue(eq(RabbitMQConfig.EXCHANGE_NAME), eq("order.created"), any(OrderCreatedEvent.class));
+
+        assertThat(results).hasSize(4);
+        assertThat(results.get(0).orderId()).isNotNull();
+        assertThat(results.get(1).orderId()).isNotNull();
+        assertThat(results.get(2).error()).isEqualTo("Product not found");
+        assertThat(results.get(3).error()).isEqualTo("Invalid quantity");
     }
 
     @Test
     void updateOrderStatus_whenOrderIsPending_shouldUpdateStatusAndNotify() {
         // Arrange
         UUID orderId = UUID.randomUUID();
-        Order pendingOrder = Order.builder().id(orderId).status(OrderStatus.PENDING).build();
-        when(orderRepository.findById(orderId)).thenReturn(Optional.of(pendingOrder));
+        when(orderRepository.transitionStatus(eq(orderId), eq(OrderStatus.PENDING), eq(OrderStatus.COMPLETED), any(Instant.class)))
+                .thenReturn(1);
 
         // Act
         orderService.updateOrderStatus("test-user", orderId, OrderStatus.COMPLETED);
 
         // Assert
-        ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
-        verify(orderRepository).save(orderCaptor.capture());
-
-        Order capturedOrder = orderCaptor.getValue();
-        assertThat(capturedOrder.getStatus()).isEqualTo(OrderStatus.COMPLETED);
-        assertThat(capturedOrder.getTimestamp()).isNotNull();
-
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any());
         verify(notificationService).notifyOrderStatusUpdate("test-user", orderId, OrderStatus.COMPLETED);
     }
 
@@ -150,14 +243,13 @@ class OrderServiceTest {
     void updateOrderStatus_whenOrderIsAlreadyCompleted_shouldDoNothing() {
         // Arrange
         UUID orderId = UUID.randomUUID();
-        Order completedOrder = Order.builder().id(orderId).status(OrderStatus.COMPLETED).timestamp(Instant.now()).build();
-        when(orderRepository.findById(orderId)).thenReturn(Optional.of(completedOrder));
+        when(orderRepository.transitionStatus(eq(orderId), eq(OrderStatus.PENDING), eq(OrderStatus.FAILED), any(Instant.class)))
+                .thenReturn(0);
 
         // Act
         orderService.updateOrderStatus("test-user", orderId, OrderStatus.FAILED);
 
         // Assert
-        verify(orderRepository, never()).save(any());
         verify(notificationService, never()).notifyOrderStatusUpdate(anyString(), any(), any());
     }
 }
@@ -0,0 +1,99 @@
+package com.github.gavro081.orderservice.services;
+
+import com.github.gavro081.orderservice.config.OutboxProperties;
+import com.github.gavro081.orderservice.models.OutboxEvent;
+import com.github.gavro081.orderservice.repositories.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxEventRepository, rabbitTemplate, transactionTemplate,
+                new OutboxProperties(2, Duration.ofMillis(100), Duration.ofMillis(200)));
+    }
+
+    @Test
+    void relayBatch_shouldDeleteOnlyConfirmedEvents() {
+        // Arrange
+        OutboxEvent acked = event();
+        OutboxEvent nacked = event();
+        when(outboxEventRepository.findBatchForRelay(Limit.of(2))).thenReturn(List.of(acked, nacked));
+        doAnswer(invocation -> {
+            CorrelationData correlationData = invocation.getArgument(3);
+            boolean ack = correlationData.getId().equals(acked.getId().toString());
+            correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).send(eq("exchange"), eq("order.created"), any(Message.class), any(CorrelationData.class));
+
+        // Act
+        int relayed = outboxRelay.relayBatch();
+
+        // Assert
+        assertThat(relayed).isEqualTo(1);
+        verify(rabbitTemplate, times(2)).send(eq("exchange"), eq("order.created"), any(Message.class), any(CorrelationData.class));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(acked.getId()));
+    }
+
+    @Test
+    void flush_shouldKeepDrainingWhileBatchesAreFull() {
+        // Arrange
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(outboxEventRepository.findBatchForRelay(Limit.of(2)))
+                .thenReturn(List.of(event(), event()))
+                .thenReturn(List.of(event()));
+        doAnswer(invocation -> {
+            invocation.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(any(), any(), any(Message.class), any(CorrelationData.class));
+
+        // Act
+        outboxRelay.flush();
+
+        // Assert
+        verify(outboxEventRepository, times(2)).findBatchForRelay(Limit.of(2));
+        verify(rabbitTemplate, times(3)).send(any(), any(), any(Message.class), any(CorrelationData.class));
+    }
+
+    private static OutboxEvent event() {
+        return OutboxEvent.builder()
+                .id(UUID.randomUUID())
+                .exchange("exchange")
+                .routingKey("order.created")
+                .contentType("application/json")
+                .payload("{}".getBytes())
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.gavro081.productservice.config;
+
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "microservices.products.batch-listener.enabled", havingValue = "true")
+@EnableConfigurationProperties(BatchListenerProperties.class)
+public class BatchListenerConfig {
+    public static final String BATCH_CONTAINER_FACTORY = "productsBatchContainerFactory";
+
+    @Bean(BATCH_CONTAINER_FACTORY)
+    SimpleRabbitListenerContainerFactory productsBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            BatchListenerProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(properties.batchSize());
+        factory.setReceiveTimeout(properties.receiveTimeout().toMillis());
+        factory.setPrefetchCount(Math.max(properties.batchSize(), 250));
+//        the listener falls back to per-message processing itself; redelivering the whole batch
+//        through the stateless retry interceptor would replay messages that already succeeded
+        factory.setAdviceChain();
+        return factory;
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.gavro081.productservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Opt-in batch consumption of products_queue: a batch is handed to the listener once
+ * {@code batchSize} messages have arrived or no new message came in for {@code receiveTimeout}.
+ */
+@ConfigurationProperties("microservices.products.batch-listener")
+public record BatchListenerProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("50ms") Duration receiveTimeout) {
+}
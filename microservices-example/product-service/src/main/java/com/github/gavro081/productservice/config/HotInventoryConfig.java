@@ -0,0 +1,11 @@
+package com.github.gavro081.productservice.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(HotInventoryProperties.class)
+public class HotInventoryConfig {
+}
@@ -0,0 +1,22 @@
+package com.github.gavro081.productservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Which products are served from in-memory striped counters instead of row updates, and how
+ * often their journaled changes are written back. Products are matched by id or by category
+ * when product-service starts.
+ */
+@ConfigurationProperties("microservices.inventory.hot")
+public record HotInventoryProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue Set<Long> productIds,
+        @DefaultValue Set<String> categories,
+        @DefaultValue("8") int stripes,
+        @DefaultValue("500ms") Duration flushInterval,
+        @DefaultValue("1000") int flushBatchSize) {
+}
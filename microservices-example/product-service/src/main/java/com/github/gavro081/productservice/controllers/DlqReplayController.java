@@ -0,0 +1,41 @@
+package com.github.gavro081.productservice.controllers;
+
+import com.github.gavro081.productservice.dao.ReplayProgress;
+import com.github.gavro081.productservice.dao.ReplayRequest;
+import com.github.gavro081.productservice.services.DlqReplayService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Operator endpoints for replaying products_queue_dlq. Not routed through the api-gateway.
+ */
+@RestController
+@RequestMapping("/admin/dlq/replay")
+public class DlqReplayController {
+    private final DlqReplayService replayService;
+
+    public DlqReplayController(DlqReplayService replayService) {
+        this.replayService = replayService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReplayProgress> startReplay(@RequestBody ReplayRequest request){
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(replayService.start(request));
+    }
+
+    @GetMapping
+    public ResponseEntity<ReplayProgress> getProgress(){
+        return ResponseEntity.of(replayService.progress());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ReplayProgress> cancelReplay(){
+        return ResponseEntity.of(replayService.cancel());
+    }
+}
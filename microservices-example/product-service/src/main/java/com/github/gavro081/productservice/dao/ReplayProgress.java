@@ -0,0 +1,23 @@
+package com.github.gavro081.productservice.dao;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ReplayProgress(
+        UUID id,
+        ReplayState state,
+        ReplayRequest request,
+        long total,
+        long scanned,
+        long replayed,
+        long skipped,
+        Instant startedAt,
+        Instant finishedAt
+) {
+    public enum ReplayState {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.gavro081.productservice.dao;
+
+import java.time.Instant;
+
+/**
+ * Which products_queue_dlq messages to replay and how fast. Every filter is optional;
+ * {@code eventType} is the simple class name (e.g. {@code BalanceDebitFailedEvent}),
+ * {@code reason} is matched case-insensitively against the recorded failure, and
+ * {@code from}/{@code to} bound the time the message was dead-lettered.
+ */
+public record ReplayRequest(
+        String eventType,
+        String reason,
+        Instant from,
+        Instant to,
+        Integer ratePerSecond,
+        Integer concurrency
+) {
+}
@@ -0,0 +1,11 @@
+package com.github.gavro081.productservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReplayInProgressException extends RuntimeException{
+    public ReplayInProgressException(String message){
+        super(message);
+    }
+}
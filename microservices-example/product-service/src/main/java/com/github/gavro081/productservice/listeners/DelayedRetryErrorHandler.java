@@ -0,0 +1,97 @@
+package com.github.gavro081.productservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.listener.api.RabbitListenerErrorHandler;
+import org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Moves a failed products_queue or products_compensation_queue message to the next delay tier (see
+ * {@link RabbitMQConfig#PRODUCTS_RETRY_DELAYS}) instead of retrying it on the consumer thread.
+ * Once the tiers are used up, or if the message can't be converted at all, it goes to
+ * products_queue_dlq, stamped with the original routing key, the failure and the time so it
+ * can be replayed later. Either way the original delivery is only acked once the broker has
+ * confirmed the copy. If it doesn't, the delivery is rejected without requeue, and the queue's own
+ * dead-lettering moves it to products_queue_dlq instead.
+ * <p>
+ * Acking lets the queue move on, so on a partition queue the retried message falls behind
+ * newer events for the same key: partitioning keeps per-key order for messages that succeed
+ * first time, not across retries.
+ */
+@Component(DelayedRetryErrorHandler.NAME)
+public class DelayedRetryErrorHandler implements RabbitListenerErrorHandler {
+    public static final String NAME = "delayedRetryErrorHandler";
+    private static final Logger log = LoggerFactory.getLogger(DelayedRetryErrorHandler.class);
+    private final ConfirmingPublisher publisher;
+    private final Counter[] scheduled;
+    private final Counter exhausted;
+
+    public DelayedRetryErrorHandler(ConfirmingPublisher publisher, MeterRegistry meterRegistry) {
+        this.publisher = publisher;
+        this.scheduled = new Counter[RabbitMQConfig.PRODUCTS_RETRY_DELAYS.length];
+        for (int i = 0; i < scheduled.length; i++) {
+            scheduled[i] = meterRegistry.counter("products.retry.scheduled",
+                    "tier", RabbitMQConfig.PRODUCTS_RETRY_DELAYS[i].toSeconds() + "s");
+        }
+        this.exhausted = meterRegistry.counter("products.retry.exhausted");
+    }
+
+    @Override
+    public Object handleError(Message amqpMessage, Channel channel,
+                              org.springframework.messaging.Message<?> message,
+                              ListenerExecutionFailedException exception) {
+        retryOrDeadLetter(amqpMessage, exception.getCause() != null ? exception.getCause() : exception);
+        return null;
+    }
+
+    public void retryOrDeadLetter(Message message, Throwable cause) {
+        MessageProperties properties = message.getMessageProperties();
+        Integer header = properties.getHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER);
+        int attempt = header == null ? 0 : header;
+//        after the first retry the message comes back through the default exchange, so keep the key it was published with
+        if (properties.getHeader(RepublishMessageRecoverer.X_ORIGINAL_ROUTING_KEY) == null) {
+            properties.setHeader(RepublishMessageRecoverer.X_ORIGINAL_ROUTING_KEY, properties.getReceivedRoutingKey());
+        }
+        if (cause instanceof MessageConversionException || attempt >= scheduled.length) {
+            log.error("Giving up on message {} after {} retries, dead-lettering it",
+                    properties.getMessageId(), attempt, cause);
+            exhausted.increment();
+            properties.setHeader(RepublishMessageRecoverer.X_EXCEPTION_MESSAGE, String.valueOf(cause.getMessage()));
+            properties.setHeader(RabbitMQConfig.DEAD_LETTERED_AT_HEADER, System.currentTimeMillis());
+            handOff(RabbitMQConfig.DEAD_LETTER_EXCHANGE, "dlq.products", message);
+            return;
+        }
+
+        Duration delay = RabbitMQConfig.PRODUCTS_RETRY_DELAYS[attempt];
+        String queue = properties.getConsumerQueue() != null ? properties.getConsumerQueue() : RabbitMQConfig.PRODUCTS_QUEUE;
+        log.warn("Message {} failed ({}), retrying in {}s", properties.getMessageId(), cause.getMessage(), delay.toSeconds());
+        properties.setHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER, attempt + 1);
+        scheduled[attempt].increment();
+//        the default exchange routes straight to the tier queue by name
+        handOff("", RabbitMQConfig.retryQueueFor(queue, delay), message);
+    }
+
+    private void handOff(String exchange, String routingKey, Message message) {
+        try {
+            publisher.sendAndAwaitConfirm(exchange, routingKey, message);
+        } catch (AmqpException e) {
+            log.error("Could not move message {} to {}/{}, rejecting it", message.getMessageProperties().getMessageId(),
+                    exchange, routingKey, e);
+            throw new AmqpRejectAndDontRequeueException("Unconfirmed hand-off to " + exchange + "/" + routingKey, e);
+        }
+    }
+}
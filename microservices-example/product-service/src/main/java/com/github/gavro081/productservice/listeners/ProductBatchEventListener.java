@@ -0,0 +1,94 @@
+package com.github.gavro081.productservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.BalanceDebitFailedEvent;
+import com.github.gavro081.common.events.OrderCreatedEvent;
+import com.github.gavro081.productservice.config.BatchListenerConfig;
+import com.github.gavro081.productservice.services.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch-mode replacement for {@link ProductEventListener}. Reservations in a batch are applied
+ * in one transaction; if that fails, each message is retried on its own so one bad message
+ * can't hold back the rest. The whole batch is acked once this method returns. If a failed
+ * message can't be handed to the retry tiers, the whole batch is rejected into products_queue_dlq;
+ * replaying it is safe because processed events are deduped.
+ */
+@Component
+@ConditionalOnProperty(name = "microservices.products.batch-listener.enabled", havingValue = "true")
+public class ProductBatchEventListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductBatchEventListener.class);
+    private final ProductService productService;
+    private final RabbitTemplate rabbitTemplate;
+    private final DelayedRetryErrorHandler retryErrorHandler;
+    private final QueueLatencyRecorder latencyRecorder;
+
+    public ProductBatchEventListener(ProductService productService, RabbitTemplate rabbitTemplate,
+                                     DelayedRetryErrorHandler retryErrorHandler, QueueLatencyRecorder latencyRecorder) {
+        this.productService = productService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.retryErrorHandler = retryErrorHandler;
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.PRODUCTS_LISTENER_QUEUES, containerFactory = BatchListenerConfig.BATCH_CONTAINER_FACTORY)
+    public void handleBatch(List<Message> messages) {
+        List<OrderCreatedEvent> reservations = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            latencyRecorder.record(message);
+            Object event;
+            try {
+                event = rabbitTemplate.getMessageConverter().fromMessage(message);
+            } catch (Exception e) {
+                retryErrorHandler.retryOrDeadLetter(message, e);
+                continue;
+            }
+            if (event instanceof OrderCreatedEvent orderCreatedEvent) {
+                reservations.add(orderCreatedEvent);
+            } else if (event instanceof BalanceDebitFailedEvent failedEvent) {
+//                compensations have their own queue now; these are leftovers from before it existed
+                handleBalanceDebitFailedEvent(failedEvent, message);
+            } else {
+                log.warn("Ignoring unexpected {} on {}", event.getClass().getSimpleName(), RabbitMQConfig.PRODUCTS_QUEUE);
+            }
+        }
+        if (reservations.isEmpty()) {
+            return;
+        }
+
+        log.info("Received a batch of {} OrderCreatedEvents", reservations.size());
+        try {
+            productService.reserveInventoryBatch(reservations);
+        } catch (Exception e) {
+            log.warn("Batch of {} reservations failed, falling back to one at a time", reservations.size(), e);
+            reservations.forEach(this::handleOrderCreated);
+        }
+    }
+
+    private void handleOrderCreated(OrderCreatedEvent orderCreatedEvent) {
+        try {
+            productService.reserveInventory(orderCreatedEvent);
+        } catch (Exception e) {
+            log.info("Error occurred while processing orderId: {}", orderCreatedEvent.getOrderId());
+        }
+    }
+
+    private void handleBalanceDebitFailedEvent(BalanceDebitFailedEvent failedEvent, Message message) {
+        log.info("Received BalanceDebitFailedEvent for orderId: {}", failedEvent.getOrderId());
+        try {
+            productService.freeInventory(failedEvent);
+        } catch (Exception e) {
+//            a batch is acked as a whole, so the failed message is handed to the retry tiers by hand
+            retryErrorHandler.retryOrDeadLetter(message, e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.gavro081.productservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.ProductChangedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.github.gavro081.productservice.models.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that announces product changes. Edits and removals go out over RabbitMQ,
+ * so that order-service can evict the product from its lookup cache; every change, inserts
+ * included, is also published locally for the {@link com.github.gavro081.productservice.services.ProductCatalog}.
+ * Stock changes go through bulk updates in ProductRepository and therefore don't trigger it.
+ */
+@Component
+public class ProductChangeListener {
+    private final ConfirmingPublisher publisher;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductChangeListener(ConfirmingPublisher publisher, ApplicationEventPublisher eventPublisher) {
+        this.publisher = publisher;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    void onProductCreated(Product product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), product.getName()));
+    }
+
+    @PostUpdate
+    @PostRemove
+    void onProductChanged(Product product) {
+        ProductChangedEvent event = new ProductChangedEvent(product.getId(), product.getName());
+        publisher.publish(
+                RabbitMQConfig.EXCHANGE_NAME,
+                RabbitMQConfig.PRODUCT_CHANGED_KEY,
+                event);
+        eventPublisher.publishEvent(event);
+    }
+}
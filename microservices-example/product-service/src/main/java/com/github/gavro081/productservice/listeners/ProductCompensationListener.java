@@ -0,0 +1,35 @@
+package com.github.gavro081.productservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.BalanceDebitFailedEvent;
+import com.github.gavro081.productservice.services.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Releases inventory for failed payments. Runs on its own queue and consumers in both listener
+ * modes, so releases don't wait behind new orders on products_queue.
+ */
+@Component
+public class ProductCompensationListener {
+    private static final Logger log = LoggerFactory.getLogger(ProductCompensationListener.class);
+    private final ProductService productService;
+    private final QueueLatencyRecorder latencyRecorder;
+
+    public ProductCompensationListener(ProductService productService, QueueLatencyRecorder latencyRecorder) {
+        this.productService = productService;
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.PRODUCTS_COMPENSATION_QUEUE,
+            concurrency = "${microservices.products.compensation.concurrency:2}",
+            errorHandler = DelayedRetryErrorHandler.NAME)
+    public void handleBalanceDebitFailedEvent(BalanceDebitFailedEvent failedEvent, Message message){
+        latencyRecorder.record(message);
+        log.info("Received BalanceDebitFailedEvent for orderId: {}", failedEvent.getOrderId());
+        productService.freeInventory(failedEvent);
+    }
+}
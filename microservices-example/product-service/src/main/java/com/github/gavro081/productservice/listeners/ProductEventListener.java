@@ -6,22 +6,28 @@ import com.github.gavro081.common.events.OrderCreatedEvent;
 import com.github.gavro081.productservice.services.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
-@RabbitListener(queues = RabbitMQConfig.PRODUCTS_QUEUE)
+@ConditionalOnProperty(name = "microservices.products.batch-listener.enabled", havingValue = "false", matchIfMissing = true)
+@RabbitListener(queues = RabbitMQConfig.PRODUCTS_LISTENER_QUEUES, errorHandler = DelayedRetryErrorHandler.NAME)
 public class ProductEventListener {
     private static final Logger log = LoggerFactory.getLogger(ProductEventListener.class);
     private final ProductService productService;
+    private final QueueLatencyRecorder latencyRecorder;
 
-    public ProductEventListener(ProductService productService) {
+    public ProductEventListener(ProductService productService, QueueLatencyRecorder latencyRecorder) {
         this.productService = productService;
+        this.latencyRecorder = latencyRecorder;
     }
 
     @RabbitHandler
-    public void handleOrderCreated(OrderCreatedEvent orderCreatedEvent){
+    public void handleOrderCreated(OrderCreatedEvent orderCreatedEvent, Message message){
+        latencyRecorder.record(message);
         log.info("Received OrderCreatedEvent for orderId: {}", orderCreatedEvent.getOrderId());
         try {
             productService.reserveInventory(orderCreatedEvent);
@@ -30,6 +36,7 @@ public class ProductEventListener {
         }
     }
 
+//    compensations now arrive on their own queue (ProductCompensationListener); this drains any left on products_queue
     @RabbitHandler
     public void handleBalanceDebitFailedEvent(BalanceDebitFailedEvent failedEvent){
         log.info("Received BalanceDebitFailedEvent for orderId: {}", failedEvent.getOrderId());
@@ -0,0 +1,37 @@
+package com.github.gavro081.productservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.Message;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long each message waited between publish and reaching a listener, tagged by the
+ * queue it was consumed from, so the order and compensation lanes can be compared.
+ */
+@Component
+public class QueueLatencyRecorder {
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public QueueLatencyRecorder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(Message message) {
+        if (!(message.getMessageProperties().getHeader(RabbitMQConfig.PUBLISHED_AT_HEADER) instanceof Number publishedAt)) {
+            return;
+        }
+        String queue = message.getMessageProperties().getConsumerQueue();
+        timers.computeIfAbsent(queue == null ? "unknown" : queue, q -> Timer.builder("products.queue.latency")
+                        .tag("queue", q)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - publishedAt.longValue())));
+    }
+}
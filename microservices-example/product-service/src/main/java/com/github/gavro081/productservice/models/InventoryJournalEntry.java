@@ -0,0 +1,38 @@
+package com.github.gavro081.productservice.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A stock change made in memory for a hot product but not yet written to its products row.
+ * Positive quantities are reservations, negative ones are releases.
+ */
+@Entity
+@Table(name = "inventory_journal")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryJournalEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "order_id", nullable = false)
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
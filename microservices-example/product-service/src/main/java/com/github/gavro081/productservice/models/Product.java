@@ -1,5 +1,6 @@
 package com.github.gavro081.productservice.models;
 
+import com.github.gavro081.productservice.listeners.ProductChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -10,6 +11,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(ProductChangeListener.class)
 @Data
 @Table(name = "products")
 @Builder
@@ -0,0 +1,13 @@
+package com.github.gavro081.productservice.repositories;
+
+import com.github.gavro081.productservice.models.InventoryJournalEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryJournalRepository extends JpaRepository<InventoryJournalEntry, Long> {
+    List<InventoryJournalEntry> findAllByOrderById(Limit limit);
+}
@@ -2,7 +2,35 @@ package com.github.gavro081.productservice.repositories;
 
 import com.github.gavro081.productservice.models.ProcessedEvent;
 import com.github.gavro081.productservice.models.ProcessedEventId;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.stream.Stream;
 
 public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, ProcessedEventId> {
+    @Query("SELECT new com.github.gavro081.productservice.models.ProcessedEventId(e.orderId, e.context) FROM ProcessedEvent e")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ProcessedEventId> streamAllIds();
+
+    /**
+     * Deletes up to {@code limit} rows older than {@code cutoff}, oldest first, each call in its
+     * own short transaction so the purge never holds many row locks at once.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM processed_events WHERE (order_id, context) IN (
+                SELECT order_id, context FROM processed_events WHERE timestamp < :cutoff ORDER BY timestamp LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteOlderThan(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
 }
@@ -0,0 +1,293 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.converter.BinaryMessageConverter;
+import com.github.gavro081.productservice.dao.ReplayProgress;
+import com.github.gavro081.productservice.dao.ReplayProgress.ReplayState;
+import com.github.gavro081.productservice.dao.ReplayRequest;
+import com.github.gavro081.productservice.exceptions.ReplayInProgressException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays products_queue_dlq back onto order_events_exchange under the routing key each
+ * message was originally published with. A job scans at most the messages that were in the DLQ
+ * when it started: matching ones are replayed, the rest go back to the tail of the DLQ. Each
+ * message is acked only after the broker has confirmed its republished copy; if that confirm
+ * doesn't come, the channel is closed and the message returns to the DLQ. Replays stay
+ * idempotent because the events keep their ids and product-service checks them against
+ * processed_events.
+ */
+@Service
+public class DlqReplayService {
+    private static final int DEFAULT_RATE_PER_SECOND = 100;
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final int MAX_CONCURRENCY = 32;
+    private static final long CONFIRM_TIMEOUT_MILLIS = 5000;
+    private final Logger logger = LoggerFactory.getLogger(DlqReplayService.class);
+    private final RabbitTemplate rabbitTemplate;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<ReplayJob> currentJob = new AtomicReference<>();
+    private final Counter replayedMessages;
+    private final Counter skippedMessages;
+
+    public DlqReplayService(RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.replayedMessages = meterRegistry.counter("dlq.replay.messages", "outcome", "replayed");
+        this.skippedMessages = meterRegistry.counter("dlq.replay.messages", "outcome", "skipped");
+    }
+
+    public ReplayProgress start(ReplayRequest request) {
+        ReplayJob previous = currentJob.get();
+        ReplayJob job = new ReplayJob(request);
+        if ((previous != null && previous.state == ReplayState.RUNNING) || !currentJob.compareAndSet(previous, job)) {
+            throw new ReplayInProgressException("A DLQ replay is already running");
+        }
+        executor.submit(() -> run(job));
+        return job.snapshot();
+    }
+
+    public Optional<ReplayProgress> progress() {
+        return Optional.ofNullable(currentJob.get()).map(ReplayJob::snapshot);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    public Optional<ReplayProgress> cancel() {
+        ReplayJob job = currentJob.get();
+        if (job != null) {
+            job.cancelled = true;
+        }
+        return progress();
+    }
+
+    private void run(ReplayJob job) {
+        try {
+            Long depth = rabbitTemplate.execute(channel -> channel.messageCount(RabbitMQConfig.PRODUCTS_QUEUE_DLQ));
+            job.total = depth == null ? 0 : depth;
+            job.remaining.set(job.total);
+            logger.info("Replaying up to {} messages from {} ({})", job.total, RabbitMQConfig.PRODUCTS_QUEUE_DLQ, job.request);
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < job.concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    work(job);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            job.finish(job.cancelled ? ReplayState.CANCELLED : ReplayState.COMPLETED);
+            logger.info("DLQ replay {} finished: {} replayed, {} skipped", job.id, job.replayed, job.skipped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(ReplayState.CANCELLED);
+        } catch (Exception e) {
+            logger.error("DLQ replay {} failed", job.id, e);
+            job.finish(ReplayState.FAILED);
+        }
+    }
+
+    private void work(ReplayJob job) throws InterruptedException {
+        while (!job.cancelled && job.remaining.getAndDecrement() > 0) {
+            job.pace();
+            Boolean replayed = rabbitTemplate.execute(channel -> replayNext(channel, job.request));
+            if (replayed == null) {
+                return;
+            }
+            job.scanned.incrementAndGet();
+            if (replayed) {
+                job.replayed.incrementAndGet();
+                replayedMessages.increment();
+            } else {
+                job.skipped.incrementAndGet();
+                skippedMessages.increment();
+            }
+        }
+    }
+
+    /**
+     * Takes one message off the DLQ and either replays it or puts it back. Returns null once the DLQ is empty.
+     */
+    Boolean replayNext(Channel channel, ReplayRequest request) throws IOException, InterruptedException, TimeoutException {
+//        already in confirm mode when publisher confirms are on; selecting again is a no-op
+        channel.confirmSelect();
+        GetResponse response = channel.basicGet(RabbitMQConfig.PRODUCTS_QUEUE_DLQ, false);
+        if (response == null) {
+            return null;
+        }
+        MessageProperties properties = propertiesConverter.toMessageProperties(
+                response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name());
+        String routingKey = originalRoutingKey(properties);
+        boolean replay = routingKey != null && matches(properties, response.getBody(), request);
+        if (replay) {
+//            a replayed message gets the full set of retry tiers again, and its queue latency
+//            counts from the replay rather than from a publish that may be days old
+            properties.getHeaders().remove(RabbitMQConfig.RETRY_ATTEMPT_HEADER);
+            properties.setHeader(RabbitMQConfig.PUBLISHED_AT_HEADER, System.currentTimeMillis());
+            channel.basicPublish(RabbitMQConfig.EXCHANGE_NAME, routingKey,
+                    propertiesConverter.fromMessageProperties(properties, StandardCharsets.UTF_8.name()), response.getBody());
+        } else {
+            channel.basicPublish("", RabbitMQConfig.PRODUCTS_QUEUE_DLQ, response.getProps(), response.getBody());
+        }
+//        a nack or timeout closes the channel, which hands the unacked original back to the DLQ
+        channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+        channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+        return replay;
+    }
+
+    static boolean matches(MessageProperties properties, byte[] body, ReplayRequest request) {
+        if (request.eventType() != null && !request.eventType().equalsIgnoreCase(eventType(properties, body))) {
+            return false;
+        }
+        if (request.reason() != null) {
+            String reason = failureReason(properties);
+            if (reason == null || !reason.toLowerCase(Locale.ROOT).contains(request.reason().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        if (request.from() != null || request.to() != null) {
+            Instant deadLetteredAt = deadLetteredAt(properties);
+            if (deadLetteredAt == null
+                    || (request.from() != null && deadLetteredAt.isBefore(request.from()))
+                    || (request.to() != null && !deadLetteredAt.isBefore(request.to()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+//    messages dead-lettered by DelayedRetryErrorHandler carry headers; ones rejected by the broker only have x-death
+    static String originalRoutingKey(MessageProperties properties) {
+        Object routingKey = properties.getHeader(RepublishMessageRecoverer.X_ORIGINAL_ROUTING_KEY);
+        if (routingKey != null) {
+            return routingKey.toString();
+        }
+        for (Map<String, ?> death : xDeath(properties)) {
+            if (RabbitMQConfig.EXCHANGE_NAME.equals(String.valueOf(death.get("exchange")))
+                    && death.get("routing-keys") instanceof List<?> keys && !keys.isEmpty()) {
+                return keys.getFirst().toString();
+            }
+        }
+        return null;
+    }
+
+//    JSON messages name their type in a header; binary ones carry a type id at the start of the body
+    private static String eventType(MessageProperties properties, byte[] body) {
+        Object typeId = properties.getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        if (typeId != null) {
+            String type = typeId.toString();
+            return type.substring(type.lastIndexOf('.') + 1);
+        }
+        if (BinaryMessageConverter.CONTENT_TYPE.equals(properties.getContentType())) {
+            try {
+                Class<?> type = BinaryMessageConverter.eventType(body);
+                return type == null ? null : type.getSimpleName();
+            } catch (MessageConversionException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String failureReason(MessageProperties properties) {
+        Object message = properties.getHeader(RepublishMessageRecoverer.X_EXCEPTION_MESSAGE);
+        if (message != null) {
+            return message.toString();
+        }
+        List<Map<String, ?>> deaths = xDeath(properties);
+        return deaths.isEmpty() ? null : String.valueOf(deaths.getFirst().get("reason"));
+    }
+
+    private static Instant deadLetteredAt(MessageProperties properties) {
+        if (properties.getHeader(RabbitMQConfig.DEAD_LETTERED_AT_HEADER) instanceof Number millis) {
+            return Instant.ofEpochMilli(millis.longValue());
+        }
+        List<Map<String, ?>> deaths = xDeath(properties);
+        return !deaths.isEmpty() && deaths.getFirst().get("time") instanceof Date time ? time.toInstant() : null;
+    }
+
+    private static List<Map<String, ?>> xDeath(MessageProperties properties) {
+        List<Map<String, ?>> deaths = properties.getXDeathHeader();
+        return deaths == null ? List.of() : deaths;
+    }
+
+    private static final class ReplayJob {
+        private final UUID id = UUID.randomUUID();
+        private final ReplayRequest request;
+        private final int concurrency;
+        private final long intervalNanos;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong remaining = new AtomicLong();
+        private final AtomicLong nextSlot = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile long total;
+        private volatile boolean cancelled;
+        private volatile ReplayState state = ReplayState.RUNNING;
+        private volatile Instant finishedAt;
+
+        private ReplayJob(ReplayRequest request) {
+            this.request = request;
+            this.concurrency = Math.clamp(request.concurrency() == null ? DEFAULT_CONCURRENCY : request.concurrency(), 1, MAX_CONCURRENCY);
+            int rate = request.ratePerSecond() == null ? DEFAULT_RATE_PER_SECOND : Math.max(1, request.ratePerSecond());
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        }
+
+//        shared across workers: each message takes the next free slot, and idle time is not banked as burst
+        private void pace() throws InterruptedException {
+            long now = System.nanoTime();
+            long slot = nextSlot.accumulateAndGet(now, (previous, current) ->
+                    previous == Long.MIN_VALUE ? current : Math.max(previous + intervalNanos, current));
+            TimeUnit.NANOSECONDS.sleep(slot - now);
+        }
+
+        private void finish(ReplayState finalState) {
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        private ReplayProgress snapshot() {
+            return new ReplayProgress(id, state, request, total, scanned.get(), replayed.get(), skipped.get(),
+                    startedAt, finishedAt);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.productservice.config.HotInventoryProperties;
+import com.github.gavro081.productservice.models.InventoryJournalEntry;
+import com.github.gavro081.productservice.models.Product;
+import com.github.gavro081.productservice.repositories.InventoryJournalRepository;
+import com.github.gavro081.productservice.repositories.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inventory for hot products. Reservations are taken from striped counters and
+ * recorded in the inventory_journal table in the caller's transaction, so the products row
+ * is not locked per order. A background flush applies the journal to the products rows in
+ * batches and picks up stock changes made to those rows from outside the engine.
+ * <p>
+ * The counters only ever under-report stock: memory is decremented before the journal row
+ * commits and handed back only if that transaction rolls back, and on startup it is rebuilt
+ * from the rows after the journal has been applied. This assumes a single product-service
+ * instance owns the hot products; two instances would each hand out the full stock. The engine
+ * therefore refuses to start in partitioned mode, which exists to run several instances, and
+ * must otherwise only be enabled on a deployment with one product-service replica.
+ */
+@Service
+public class HotInventoryService {
+    private final Logger logger = LoggerFactory.getLogger(HotInventoryService.class);
+    private final ProductRepository productRepository;
+    private final InventoryJournalRepository journalRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final HotInventoryProperties properties;
+    private final int partitions;
+    private final Map<Long, HotProduct> hotProducts = new ConcurrentHashMap<>();
+
+    private static final class HotProduct {
+        private final StripedStock stock;
+//        what the products row holds according to the engine; a different value means someone else changed it
+        private volatile long persistedQuantity;
+
+        private HotProduct(StripedStock stock, long persistedQuantity) {
+            this.stock = stock;
+            this.persistedQuantity = persistedQuantity;
+        }
+    }
+
+    public HotInventoryService(ProductRepository productRepository,
+                               InventoryJournalRepository journalRepository,
+                               TransactionTemplate transactionTemplate,
+                               HotInventoryProperties properties,
+                               @Value("${" + RabbitMQConfig.PARTITIONS_PROPERTY + ":0}") int partitions) {
+        this.productRepository = productRepository;
+        this.journalRepository = journalRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.partitions = partitions;
+    }
+
+//    runs before the listener containers start, so no reservation can see a half-loaded engine
+    @PostConstruct
+    void start() {
+        if (properties.enabled() && partitions > 0) {
+            throw new IllegalStateException("microservices.inventory.hot.enabled needs a single product-service instance, "
+                    + "but " + RabbitMQConfig.PARTITIONS_PROPERTY + "=" + partitions + " is for running several");
+        }
+//        apply whatever a previous run left in the journal, even if the engine has since been switched off
+        flush();
+        if (!properties.enabled()) {
+            return;
+        }
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(properties.productIds()).forEach(product -> products.put(product.getId(), product));
+        if (!properties.categories().isEmpty()) {
+            productRepository.findByCategoryIn(properties.categories()).forEach(product -> products.put(product.getId(), product));
+        }
+        products.values().forEach(product -> hotProducts.put(product.getId(), new HotProduct(
+                new StripedStock(product.getQuantity(), properties.stripes()), product.getQuantity())));
+        logger.info("Serving {} hot products from memory: {}", hotProducts.size(), hotProducts.keySet());
+    }
+
+    public boolean isHot(long productId) {
+        return hotProducts.containsKey(productId);
+    }
+
+    public long available(long productId) {
+        return hotProducts.get(productId).stock.available();
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public boolean tryReserve(long productId, UUID orderId, int quantity) {
+        StripedStock stock = hotProducts.get(productId).stock;
+        if (!stock.tryReserve(quantity)) {
+            return false;
+        }
+//        registered before the insert, so a failed insert hands the stock back as well
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    stock.add(quantity);
+                }
+            }
+        });
+        journal(productId, orderId, quantity);
+        return true;
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void release(long productId, UUID orderId, int quantity) {
+        StripedStock stock = hotProducts.get(productId).stock;
+        journal(productId, orderId, -quantity);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stock.add(quantity);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${microservices.inventory.hot.flush-interval:500ms}")
+    public void flush() {
+        Integer flushed;
+        do {
+            flushed = transactionTemplate.execute(status -> flushBatch());
+        } while (flushed != null && flushed == properties.flushBatchSize());
+    }
+
+    private int flushBatch() {
+        List<InventoryJournalEntry> entries = journalRepository.findAllByOrderById(Limit.of(properties.flushBatchSize()));
+        Map<Long, Long> netReserved = new HashMap<>();
+        entries.forEach(entry -> netReserved.merge(entry.getProductId(), (long) entry.getQuantity(), Long::sum));
+        Set<Long> productIds = new HashSet<>(netReserved.keySet());
+        productIds.addAll(hotProducts.keySet());
+        if (productIds.isEmpty()) {
+            return 0;
+        }
+
+//        one row lock per product per flush, instead of one per order
+        List<Runnable> afterCommit = new ArrayList<>();
+        for (Product product : productRepository.findAllByIdForUpdate(productIds)) {
+            long reserved = netReserved.getOrDefault(product.getId(), 0L);
+            long quantity = product.getQuantity();
+            HotProduct hot = hotProducts.get(product.getId());
+            long external = hot == null ? 0 : quantity - hot.persistedQuantity;
+            if (reserved == 0 && external == 0) {
+                continue;
+            }
+            if (external != 0) {
+                logger.info("Stock of hot product {} changed outside the engine by {}", product.getId(), external);
+            }
+            long updated = quantity - reserved;
+            if (updated < 0) {
+                logger.warn("Stock of product {} was lowered below what is already reserved, clamping at 0", product.getId());
+                updated = 0;
+            }
+            productRepository.setStock(product.getId(), (int) updated);
+            if (hot != null) {
+                long persisted = updated;
+                afterCommit.add(() -> {
+                    hot.persistedQuantity = persisted;
+                    hot.stock.add(external);
+                });
+            }
+        }
+        journalRepository.deleteAllInBatch(entries);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                afterCommit.forEach(Runnable::run);
+            }
+        });
+        return entries.size();
+    }
+
+    private void journal(long productId, UUID orderId, int quantity) {
+        journalRepository.save(InventoryJournalEntry.builder()
+                .productId(productId)
+                .orderId(orderId)
+                .quantity(quantity)
+                .createdAt(Instant.now())
+                .build());
+    }
+}
@@ -0,0 +1,224 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.common.events.ProductChangedEvent;
+import com.github.gavro081.productservice.models.Product;
+import com.github.gavro081.productservice.repositories.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of the products table, indexed by id and by name, that serves the read endpoints
+ * and the product lookups on the reservation path. Entries are immutable snapshots, replaced when:
+ * <ul>
+ *     <li>a reservation or release commits (stock moves through bulk updates, so it is applied here by hand),</li>
+ *     <li>a product is inserted, edited or removed through JPA (via {@link ProductChangedEvent}),</li>
+ *     <li>the periodic full refresh finds an entry that no longer matches the database.</li>
+ * </ul>
+ * Every local change stamps its entry with a sequence number. The refresh only corrects entries
+ * that haven't changed since it started reading, so it can't overwrite a commit that landed
+ * while it ran.
+ * <p>
+ * Only changes made by this instance reach the catalog right away. With several product-service
+ * replicas, stock moved by another replica shows up here at the next refresh, so the read
+ * endpoints can be up to {@code microservices.products.catalog.refresh-interval} stale.
+ * Reservations are unaffected because they decide on locked rows, not on the catalog.
+ */
+@Service
+public class ProductCatalog {
+    private final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+    private final ProductRepository productRepository;
+    private final Map<Long, Product> byId = new ConcurrentHashMap<>();
+    private final Map<String, Long> idByName = new ConcurrentHashMap<>();
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter drift;
+    private volatile long lastRefreshNanos = System.nanoTime();
+
+    public ProductCatalog(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.hits = meterRegistry.counter("product.catalog.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("product.catalog.lookups", "result", "miss");
+//        entries the full refresh had to correct, i.e. changes that reached the table without reaching the catalog
+        this.drift = meterRegistry.counter("product.catalog.drift");
+        Gauge.builder("product.catalog.size", byId, Map::size).register(meterRegistry);
+        Gauge.builder("product.catalog.age.seconds", this, catalog -> (System.nanoTime() - catalog.lastRefreshNanos) / 1e9)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        reload(false);
+    }
+
+    @Scheduled(fixedDelayString = "${microservices.products.catalog.refresh-interval:5m}",
+            initialDelayString = "${microservices.products.catalog.refresh-interval:5m}")
+    public void refresh() {
+        reload(true);
+    }
+
+    public List<Product> getProducts() {
+        return byId.values().stream().sorted(Comparator.comparing(Product::getId)).toList();
+    }
+
+    public Optional<Product> findById(Long id) {
+        Product product = byId.get(id);
+        if (product != null) {
+            hits.increment();
+            return Optional.of(product);
+        }
+        misses.increment();
+        return productRepository.findById(id).map(this::snapshot).map(this::put);
+    }
+
+    public Product findByName(String name) {
+        Long id = idByName.get(name);
+        Product product = id == null ? null : byId.get(id);
+        if (product != null) {
+            hits.increment();
+            return product;
+        }
+        misses.increment();
+        Product loaded = productRepository.findByName(name);
+        return loaded == null ? null : put(snapshot(loaded));
+    }
+
+    /**
+     * Applies a stock change once the surrounding transaction commits, or right away if there is none.
+     */
+    public void adjustStock(Long productId, int delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyStockChange(productId, delta);
+                }
+            });
+        } else {
+            applyStockChange(productId, delta);
+        }
+    }
+
+//    fallbackExecution covers changes made outside a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        productRepository.findById(event.getProductId())
+                .map(this::snapshot)
+                .ifPresentOrElse(this::put, () -> remove(event.getProductId()));
+    }
+
+    private void reload(boolean countDrift) {
+//        anything stamped after this was changed locally while the table was being read
+        long startedAt = changes.get();
+        Map<Long, Product> current = new HashMap<>();
+        productRepository.findAll().forEach(product -> current.put(product.getId(), snapshot(product)));
+        int corrected = 0;
+        for (Product product : current.values()) {
+            if (replaceUnlessChangedSince(product.getId(), product, startedAt)) {
+                corrected++;
+            }
+        }
+        for (Long id : List.copyOf(byId.keySet())) {
+            if (!current.containsKey(id) && replaceUnlessChangedSince(id, null, startedAt)) {
+                corrected++;
+            }
+        }
+        lastRefreshNanos = System.nanoTime();
+        if (countDrift && corrected > 0) {
+            drift.increment(corrected);
+            logger.info("Catalog refresh corrected {} of {} products", corrected, current.size());
+        }
+    }
+
+    private void applyStockChange(Long productId, int delta) {
+        byId.computeIfPresent(productId, (id, product) -> {
+            changedAt.put(id, changes.incrementAndGet());
+            return withQuantity(product, product.getQuantity() + delta);
+        });
+    }
+
+    /**
+     * Puts the refreshed entry in place (or removes it, for null) unless a local change has been
+     * stamped on it since {@code startedAt}. Returns whether the entry was corrected.
+     */
+    private boolean replaceUnlessChangedSince(Long id, Product refreshed, long startedAt) {
+        Product[] previous = new Product[1];
+        boolean[] corrected = {false};
+//        runs under the entry's lock, so it can't interleave with applyStockChange
+        byId.compute(id, (key, existing) -> {
+            previous[0] = existing;
+            if (changedAt.getOrDefault(key, 0L) > startedAt || Objects.equals(existing, refreshed)) {
+                return existing;
+            }
+            corrected[0] = true;
+            return refreshed;
+        });
+        if (corrected[0]) {
+            updateNameIndex(id, previous[0], refreshed);
+        }
+        return corrected[0];
+    }
+
+    private Product put(Product product) {
+        Product[] previous = new Product[1];
+        byId.compute(product.getId(), (id, existing) -> {
+            changedAt.put(id, changes.incrementAndGet());
+            previous[0] = existing;
+            return product;
+        });
+        updateNameIndex(product.getId(), previous[0], product);
+        return product;
+    }
+
+    private void remove(Long id) {
+        Product[] previous = new Product[1];
+        byId.computeIfPresent(id, (key, existing) -> {
+            changedAt.put(key, changes.incrementAndGet());
+            previous[0] = existing;
+            return null;
+        });
+        updateNameIndex(id, previous[0], null);
+    }
+
+    private void updateNameIndex(Long id, Product previous, Product current) {
+        if (previous != null && (current == null || !Objects.equals(previous.getName(), current.getName()))) {
+            idByName.remove(previous.getName(), id);
+        }
+        if (current != null) {
+            idByName.put(current.getName(), id);
+        }
+    }
+
+    private Product snapshot(Product product) {
+        return withQuantity(product, product.getQuantity());
+    }
+
+    private static Product withQuantity(Product product, int quantity) {
+        return Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .category(product.getCategory())
+                .price(product.getPrice())
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -6,42 +6,57 @@ import com.github.gavro081.common.events.BalanceDebitFailedEvent;
 import com.github.gavro081.common.events.InventoryReservationFailedEvent;
 import com.github.gavro081.common.events.InventoryReservedEvent;
 import com.github.gavro081.common.events.OrderCreatedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
 import com.github.gavro081.productservice.exceptions.ProductNotFoundException;
 import com.github.gavro081.productservice.models.Product;
 import com.github.gavro081.productservice.repositories.ProductRepository;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class ProductService {
     private final ProductRepository productRepository;
     private final ProcessedEventService processedEventService;
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmingPublisher publisher;
+    private final HotInventoryService hotInventory;
+    private final ProductCatalog productCatalog;
     private final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
     public ProductService(ProductRepository productRepository,
                           ProcessedEventService processedEventService,
-                          RabbitTemplate rabbitTemplate) {
+                          ConfirmingPublisher publisher,
+                          HotInventoryService hotInventory,
+                          ProductCatalog productCatalog) {
         this.productRepository = productRepository;
         this.processedEventService = processedEventService;
-        this.rabbitTemplate = rabbitTemplate;
+        this.publisher = publisher;
+        this.hotInventory = hotInventory;
+        this.productCatalog = productCatalog;
     }
 
     private static final String CONTEXT_RESERVE = "INVENTORY_RESERVATION";
     private static final String CONTEXT_RELEASE = "INVENTORY_RELEASE";
 
+    private record ReservationOutcome(String routingKey, Object event) {}
+
     public List<Product> getProducts(){
-        return productRepository.findAll();
+        return productCatalog.getProducts();
     }
 
     public Product getProductById(Long id) throws ProductNotFoundException{
-        return productRepository
+        return productCatalog
                 .findById(id)
                 .orElseThrow(() -> new ProductNotFoundException("Product " + id + "is not found"));
     }
@@ -55,19 +70,30 @@ public class ProductService {
             return;
         }
 
-        Product product;
-        try {
-             product = getProductById(Long.parseLong(event.getProductId()));
-        } catch (ProductNotFoundException e) {
-            logger.warn("Product not found for event {}. Publishing failure event.", event.getEventId());
-            publishFailureEvent(event, ReservationFailureReason.PRODUCT_NOT_FOUND, "Product could not be found");
+        long productId = Long.parseLong(event.getProductId());
+        if (hotInventory.isHot(productId)) {
+            if (hotInventory.tryReserve(productId, event.getOrderId(), event.getQuantity())) {
+                productCatalog.adjustStock(productId, -event.getQuantity());
+                publishSuccessEvent(event, getProductById(productId));
+            } else {
+                publishFailureEvent(
+                        event,
+                        ReservationFailureReason.INSUFFICIENT_STOCK,
+                        "Insufficient stock, available items: " + hotInventory.available(productId));
+            }
+            return;
+        }
+        if (productRepository.decrementStock(productId, event.getQuantity()) == 1) {
+            productCatalog.adjustStock(productId, -event.getQuantity());
+            publishSuccessEvent(event, getProductById(productId));
             return;
         }
 
-        if (product.getQuantity() >= event.getQuantity()){
-            product.setQuantity(product.getQuantity() - event.getQuantity());
-            productRepository.save(product);
-            publishSuccessEvent(event, product);
+//        nothing was updated: either the product doesn't exist or there isn't enough stock
+        Product product = productRepository.findById(productId).orElse(null);
+        if (product == null) {
+            logger.warn("Product not found for event {}. Publishing failure event.", event.getEventId());
+            publishFailureEvent(event, ReservationFailureReason.PRODUCT_NOT_FOUND, "Product could not be found");
         } else {
             publishFailureEvent(
                     event,
@@ -76,6 +102,95 @@ public class ProductService {
         }
     }
 
+    /**
+     * Batch counterpart of {@link #reserveInventory}: one dedupe query, one locked read of the
+     * products involved and one guarded decrement per product, with all resulting events published
+     * together. Orders for the same product are served in arrival order until its stock runs out.
+     * <p>
+     * The events go out before commit, but only after every write has reached the database: the
+     * dedupe rows are flushed by {@link ProcessedEventService#markNewAsProcessed} and the decrements
+     * are direct updates. A duplicate therefore fails before anything is published. A commit that
+     * still fails after that means the batch is redelivered and its events are published again,
+     * which consumers dedupe. Publishing after commit would instead lose the events if the
+     * publish failed, because the redelivery would be skipped as a duplicate.
+     */
+    @Transactional
+    public void reserveInventoryBatch(List<OrderCreatedEvent> events) {
+        Set<UUID> fresh = processedEventService.markNewAsProcessed(
+                events.stream().map(OrderCreatedEvent::getEventId).toList(), CONTEXT_RESERVE);
+        List<OrderCreatedEvent> toReserve = new ArrayList<>(fresh.size());
+        for (OrderCreatedEvent event : events) {
+            if (fresh.remove(event.getEventId())) {
+                toReserve.add(event);
+            } else {
+                logger.warn("Duplicate INVENTORY_RESERVATION for order {}, ignoring.", event.getOrderId());
+            }
+        }
+        if (toReserve.isEmpty()) {
+            return;
+        }
+
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> hotProductIds = new HashSet<>();
+        toReserve.forEach(event -> {
+            long productId = Long.parseLong(event.getProductId());
+            (hotInventory.isHot(productId) ? hotProductIds : productIds).add(productId);
+        });
+//        hot products are reserved in memory, so their rows are read without locking
+        Map<Long, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findAllByIdForUpdate(productIds).forEach(product -> products.put(product.getId(), product));
+        }
+        if (!hotProductIds.isEmpty()) {
+            productRepository.findAllById(hotProductIds).forEach(product -> products.put(product.getId(), product));
+        }
+
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        List<ReservationOutcome> outcomes = new ArrayList<>(toReserve.size());
+        for (OrderCreatedEvent event : toReserve) {
+            long productId = Long.parseLong(event.getProductId());
+            Product product = products.get(productId);
+            if (product == null) {
+                outcomes.add(new ReservationOutcome("inventory.failed", reservationFailedEvent(
+                        event, ReservationFailureReason.PRODUCT_NOT_FOUND, "Product could not be found")));
+                continue;
+            }
+            if (hotProductIds.contains(productId)) {
+                if (hotInventory.tryReserve(productId, event.getOrderId(), event.getQuantity())) {
+                    productCatalog.adjustStock(productId, -event.getQuantity());
+                    outcomes.add(new ReservationOutcome("inventory.reserved", reservedEvent(event, product)));
+                } else {
+                    outcomes.add(new ReservationOutcome("inventory.failed", reservationFailedEvent(
+                            event, ReservationFailureReason.INSUFFICIENT_STOCK,
+                            "Insufficient stock, available items: " + hotInventory.available(productId))));
+                }
+                continue;
+            }
+            int available = product.getQuantity() - reserved.getOrDefault(productId, 0);
+            if (available >= event.getQuantity()) {
+                reserved.merge(productId, event.getQuantity(), Integer::sum);
+                outcomes.add(new ReservationOutcome("inventory.reserved", reservedEvent(event, product)));
+            } else {
+                outcomes.add(new ReservationOutcome("inventory.failed", reservationFailedEvent(
+                        event, ReservationFailureReason.INSUFFICIENT_STOCK, "Insufficient stock, available items: " + available)));
+            }
+        }
+
+//        the rows are locked until commit, so the guarded decrements can only fail if that invariant breaks
+        reserved.forEach((productId, quantity) -> {
+            if (productRepository.decrementStock(productId, quantity) != 1) {
+                throw new IllegalStateException("Stock of product " + productId + " changed while it was locked");
+            }
+            productCatalog.adjustStock(productId, -quantity);
+        });
+        publisher.publishAll(outcomes.stream()
+                .map(outcome -> new ConfirmingPublisher.Outgoing(
+                        RabbitMQConfig.EXCHANGE_NAME, outcome.routingKey(), outcome.event()))
+                .toList());
+        logger.info("Processed a batch of {} reservations across {} products",
+                toReserve.size(), productIds.size() + hotProductIds.size());
+    }
+
     @Transactional
     public void freeInventory(BalanceDebitFailedEvent failedEvent) {
         try {
@@ -85,34 +200,45 @@ public class ProductService {
             return;
         }
 
-        try {
-            Product product = getProductById(Long.parseLong(failedEvent.getProductId()));
-            product.setQuantity(product.getQuantity() + failedEvent.getQuantity());
-            productRepository.save(product);
-            logger.info("Released {} items for product {} from order {}",
-                    failedEvent.getQuantity(), product.getId(), failedEvent.getOrderId());
-        } catch (ProductNotFoundException e){
+        long productId = Long.parseLong(failedEvent.getProductId());
+        if (hotInventory.isHot(productId)) {
+            hotInventory.release(productId, failedEvent.getOrderId(), failedEvent.getQuantity());
+        } else if (productRepository.incrementStock(productId, failedEvent.getQuantity()) == 0) {
             logger.error("Product {} not found.", failedEvent.getProductId());
-            throw new RuntimeException("Failed to process inventory release for product " + failedEvent.getProductId(), e);
+            throw new ProductNotFoundException("Failed to process inventory release for product " + failedEvent.getProductId());
         }
+        productCatalog.adjustStock(productId, failedEvent.getQuantity());
+        logger.info("Released {} items for product {} from order {}",
+                failedEvent.getQuantity(), failedEvent.getProductId(), failedEvent.getOrderId());
     }
 
     private void publishFailureEvent(OrderCreatedEvent orderEvent, ReservationFailureReason reason, String message){
-        InventoryReservationFailedEvent failedEvent = new InventoryReservationFailedEvent(
+        publisher.publish(
+                RabbitMQConfig.EXCHANGE_NAME,
+                "inventory.failed",
+                reservationFailedEvent(orderEvent, reason, message));
+    }
+
+    private void publishSuccessEvent(OrderCreatedEvent orderEvent, Product product){
+        publisher.publish(
+                RabbitMQConfig.EXCHANGE_NAME,
+                "inventory.reserved",
+                reservedEvent(orderEvent, product));
+    }
+
+    private static InventoryReservationFailedEvent reservationFailedEvent(
+            OrderCreatedEvent orderEvent, ReservationFailureReason reason, String message) {
+        return new InventoryReservationFailedEvent(
                 orderEvent.getOrderId(),
                 orderEvent.getProductId(),
                 reason,
                 message,
                 orderEvent.getUsername()
         );
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EXCHANGE_NAME,
-                "inventory.failed",
-                failedEvent);
     }
 
-    private void publishSuccessEvent(OrderCreatedEvent orderEvent, Product product){
-        InventoryReservedEvent reservedEvent = InventoryReservedEvent.builder()
+    private static InventoryReservedEvent reservedEvent(OrderCreatedEvent orderEvent, Product product) {
+        return InventoryReservedEvent.builder()
                 .orderId(orderEvent.getOrderId())
                 .userId(orderEvent.getUserId())
                 .productId(orderEvent.getProductId())
@@ -122,13 +248,9 @@ public class ProductService {
                 .totalPrice(product.getPrice() * orderEvent.getQuantity())
                 .username(orderEvent.getUsername())
                 .build();
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EXCHANGE_NAME,
-                "inventory.reserved",
-                reservedEvent);
     }
 
     public Product getProductByName(String name) {
-        return productRepository.findByName(name);
+        return productCatalog.findByName(name);
     }
 }
@@ -0,0 +1,71 @@
+package com.github.gavro081.productservice.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock of one product split over several independently CAS-ed cells, so concurrent
+ * reservations mostly touch different cache lines instead of contending on one counter.
+ * When no single cell can cover a request, the cells are consolidated under a lock and the
+ * request is retried against the total, so a reservation is only refused when the stock as
+ * a whole is short.
+ */
+class StripedStock {
+//    cells are spaced a cache line apart (8 longs) to avoid false sharing
+    private static final int PAD = 8;
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    StripedStock(long initial, int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicLongArray(this.stripes * PAD);
+        spread(initial);
+    }
+
+    boolean tryReserve(long quantity) {
+        int start = home();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PAD;
+            long available;
+            while ((available = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, available, available - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return consolidateAndReserve(quantity);
+    }
+
+    void add(long quantity) {
+        cells.getAndAdd(home() * PAD, quantity);
+    }
+
+    long available() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PAD);
+        }
+        return total;
+    }
+
+    private synchronized boolean consolidateAndReserve(long quantity) {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        boolean reserved = total >= quantity;
+        spread(reserved ? total - quantity : total);
+        return reserved;
+    }
+
+    private void spread(long total) {
+        long share = total / stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.getAndAdd(i * PAD, share);
+        }
+        cells.getAndAdd(0, total - share * stripes);
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().threadId() % stripes);
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.gavro081.productservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class DelayedRetryErrorHandlerTest {
+    @Mock
+    private ConfirmingPublisher publisher;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DelayedRetryErrorHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new DelayedRetryErrorHandler(publisher, meterRegistry);
+    }
+
+    private static Message message(Integer attempt) {
+        MessageProperties properties = new MessageProperties();
+        if (attempt != null) {
+            properties.setHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER, attempt);
+        }
+        return new Message("{}".getBytes(), properties);
+    }
+
+    @Test
+    void retryOrDeadLetter_FirstFailure_GoesToFirstTier() {
+        Message message = message(null);
+
+        handler.retryOrDeadLetter(message, new IllegalStateException("db down"));
+
+        verify(publisher).sendAndAwaitConfirm("", "products_queue.retry.1s", message);
+        assertThat((Integer) message.getMessageProperties().getHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER)).isEqualTo(1);
+        assertThat(meterRegistry.counter("products.retry.scheduled", "tier", "1s").count()).isEqualTo(1);
+    }
+
+    @Test
+    void retryOrDeadLetter_SecondFailure_GoesToNextTier() {
+        Message message = message(1);
+
+        handler.retryOrDeadLetter(message, new IllegalStateException("db down"));
+
+        verify(publisher).sendAndAwaitConfirm("", "products_queue.retry.10s", message);
+    }
+
+    @Test
+    void retryOrDeadLetter_CompensationLane_RetriesBackToItsOwnQueue() {
+        Message message = message(null);
+        message.getMessageProperties().setConsumerQueue(RabbitMQConfig.PRODUCTS_COMPENSATION_QUEUE);
+
+        handler.retryOrDeadLetter(message, new IllegalStateException("db down"));
+
+        verify(publisher).sendAndAwaitConfirm("", "products_compensation_queue.retry.1s", message);
+    }
+
+    @Test
+    void retryOrDeadLetter_PartitionQueue_UsesSharedPartitionTiers() {
+        Message message = message(null);
+        message.getMessageProperties().setConsumerQueue("products_queue.p3");
+
+        handler.retryOrDeadLetter(message, new IllegalStateException("db down"));
+
+        verify(publisher).sendAndAwaitConfirm("", "products_queue.partitions.retry.1s", message);
+    }
+
+    @Test
+    void retryOrDeadLetter_TiersExhausted_DeadLetters() {
+        Message message = message(RabbitMQConfig.PRODUCTS_RETRY_DELAYS.length);
+
+        handler.retryOrDeadLetter(message, new IllegalStateException("db down"));
+
+        verify(publisher).sendAndAwaitConfirm(RabbitMQConfig.DEAD_LETTER_EXCHANGE, "dlq.products", message);
+        assertThat(meterRegistry.counter("products.retry.exhausted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void retryOrDeadLetter_UnconvertibleMessage_DeadLettersWithoutRetrying() {
+        Message message = message(null);
+
+        handler.retryOrDeadLetter(message, new MessageConversionException("bad payload"));
+
+        verify(publisher).sendAndAwaitConfirm(RabbitMQConfig.DEAD_LETTER_EXCHANGE, "dlq.products", message);
+    }
+
+    @Test
+    void retryOrDeadLetter_UnconfirmedHandOff_RejectsTheDeliveryWithoutRequeue() {
+        Message message = message(null);
+        doThrow(new AmqpException("No confirm")).when(publisher)
+                .sendAndAwaitConfirm("", "products_queue.retry.1s", message);
+
+        assertThatThrownBy(() -> handler.retryOrDeadLetter(message, new IllegalStateException("db down")))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class);
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.productservice.dao.ReplayRequest;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DlqReplayServiceTest {
+    private static final Instant DEAD_LETTERED_AT = Instant.parse("2025-06-01T10:00:00Z");
+
+    private final DlqReplayService service = new DlqReplayService(mock(RabbitTemplate.class), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static MessageProperties retriedMessage() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("__TypeId__", "com.github.gavro081.common.events.BalanceDebitFailedEvent");
+        properties.setHeader(RepublishMessageRecoverer.X_ORIGINAL_ROUTING_KEY, "balance.failed");
+        properties.setHeader(RepublishMessageRecoverer.X_EXCEPTION_MESSAGE, "Could not open JPA EntityManager");
+        properties.setHeader(RabbitMQConfig.DEAD_LETTERED_AT_HEADER, DEAD_LETTERED_AT.toEpochMilli());
+        return properties;
+    }
+
+    private static MessageProperties brokerRejectedMessage() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("__TypeId__", "com.github.gavro081.common.events.OrderCreatedEvent");
+        properties.setHeader("x-death", List.of(Map.of(
+                "reason", "rejected",
+                "queue", RabbitMQConfig.PRODUCTS_QUEUE,
+                "exchange", RabbitMQConfig.EXCHANGE_NAME,
+                "routing-keys", List.of("order.created"),
+                "time", Date.from(DEAD_LETTERED_AT))));
+        return properties;
+    }
+
+    @Test
+    void matches_FiltersByTypeReasonAndTime() {
+        MessageProperties properties = retriedMessage();
+
+        assertThat(DlqReplayService.matches(properties, new byte[0], new ReplayRequest(null, null, null, null, null, null))).isTrue();
+        assertThat(DlqReplayService.matches(properties, new byte[0], new ReplayRequest(
+                "BalanceDebitFailedEvent", "entitymanager", DEAD_LETTERED_AT, DEAD_LETTERED_AT.plusSeconds(1), null, null))).isTrue();
+        assertThat(DlqReplayService.matches(properties, new byte[0], new ReplayRequest("OrderCreatedEvent", null, null, null, null, null))).isFalse();
+        assertThat(DlqReplayService.matches(properties, new byte[0], new ReplayRequest(null, "timeout", null, null, null, null))).isFalse();
+        assertThat(DlqReplayService.matches(properties, new byte[0], new ReplayRequest(null, null, null, DEAD_LETTERED_AT, null, null))).isFalse();
+    }
+
+    @Test
+    void matches_BrokerRejectedMessage_UsesXDeath() {
+        MessageProperties properties = brokerRejectedMessage();
+
+        assertThat(DlqReplayService.matches(properties, new byte[0], new ReplayRequest(
+                "OrderCreatedEvent", "rejected", DEAD_LETTERED_AT.minusSeconds(60), null, null, null))).isTrue();
+    }
+
+    private static GetResponse dlqMessage(MessageProperties properties, long deliveryTag) {
+        Envelope envelope = new Envelope(deliveryTag, false, RabbitMQConfig.DEAD_LETTER_EXCHANGE, "dlq.products");
+        return new GetResponse(envelope, new DefaultMessagePropertiesConverter()
+                .fromMessageProperties(properties, "UTF-8"), new byte[0], 0);
+    }
+
+    @Test
+    void replayNext_AcksOnlyAfterTheRepublishIsConfirmed() throws Exception {
+        Channel channel = mock(Channel.class);
+        when(channel.basicGet(RabbitMQConfig.PRODUCTS_QUEUE_DLQ, false)).thenReturn(dlqMessage(retriedMessage(), 7));
+
+        assertThat(service.replayNext(channel, new ReplayRequest(null, null, null, null, null, null))).isTrue();
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicPublish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("balance.failed"), any(), any());
+        inOrder.verify(channel).waitForConfirmsOrDie(anyLong());
+        inOrder.verify(channel).basicAck(7, false);
+    }
+
+    @Test
+    void replayNext_RestampsThePublishTime() throws Exception {
+        Channel channel = mock(Channel.class);
+        MessageProperties original = retriedMessage();
+        original.setHeader(RabbitMQConfig.PUBLISHED_AT_HEADER, DEAD_LETTERED_AT.toEpochMilli());
+        when(channel.basicGet(RabbitMQConfig.PRODUCTS_QUEUE_DLQ, false)).thenReturn(dlqMessage(original, 7));
+        long before = System.currentTimeMillis();
+
+        service.replayNext(channel, new ReplayRequest(null, null, null, null, null, null));
+
+        ArgumentCaptor<AMQP.BasicProperties> replayed = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        verify(channel).basicPublish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("balance.failed"), replayed.capture(), any());
+        assertThat(((Number) replayed.getValue().getHeaders().get(RabbitMQConfig.PUBLISHED_AT_HEADER)).longValue())
+                .isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void replayNext_WhenTheRepublishIsNotConfirmed_LeavesTheMessageUnacked() throws Exception {
+        Channel channel = mock(Channel.class);
+        when(channel.basicGet(RabbitMQConfig.PRODUCTS_QUEUE_DLQ, false)).thenReturn(dlqMessage(retriedMessage(), 7));
+        doThrow(new IOException("nacked")).when(channel).waitForConfirmsOrDie(anyLong());
+
+        assertThatThrownBy(() -> service.replayNext(channel, new ReplayRequest(null, null, null, null, null, null)))
+                .isInstanceOf(IOException.class);
+
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void originalRoutingKey_PrefersHeaderAndFallsBackToXDeath() {
+        assertThat(DlqReplayService.originalRoutingKey(retriedMessage())).isEqualTo("balance.failed");
+        assertThat(DlqReplayService.originalRoutingKey(brokerRejectedMessage())).isEqualTo("order.created");
+        assertThat(DlqReplayService.originalRoutingKey(new MessageProperties())).isNull();
+    }
+}
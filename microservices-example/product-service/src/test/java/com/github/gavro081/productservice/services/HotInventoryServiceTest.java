@@ -0,0 +1,136 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.productservice.config.HotInventoryProperties;
+import com.github.gavro081.productservice.models.InventoryJournalEntry;
+import com.github.gavro081.productservice.models.Product;
+import com.github.gavro081.productservice.repositories.InventoryJournalRepository;
+import com.github.gavro081.productservice.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotInventoryServiceTest {
+    private static final long PRODUCT_ID = 1L;
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private InventoryJournalRepository journalRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private HotInventoryService startedService(int stock, int partitions) {
+        HotInventoryService service = new HotInventoryService(productRepository, journalRepository, transactionTemplate,
+                new HotInventoryProperties(true, Set.of(PRODUCT_ID), Set.of(), 4, Duration.ofMillis(500), 1000), partitions);
+        lenient().when(productRepository.findAllById(Set.of(PRODUCT_ID)))
+                .thenReturn(List.of(new Product(PRODUCT_ID, "Hot Product", "test", 20.0, stock)));
+        service.start();
+        return service;
+    }
+
+//    stands in for the end of the caller's transaction
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    @Test
+    void start_whenPartitioned_shouldRefuseToServeHotProducts() {
+        assertThatThrownBy(() -> startedService(10, 4))
+                .isInstanceOf(IllegalStateException.class);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void tryReserve_whenTransactionCommits_shouldKeepTheStockReservedAndJournalIt() {
+        HotInventoryService service = startedService(10, 0);
+
+        assertThat(service.tryReserve(PRODUCT_ID, UUID.randomUUID(), 4)).isTrue();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(service.available(PRODUCT_ID)).isEqualTo(6);
+        verify(journalRepository).save(argThat(entry -> entry.getProductId() == PRODUCT_ID && entry.getQuantity() == 4));
+    }
+
+    @Test
+    void tryReserve_whenTransactionRollsBack_shouldHandTheStockBack() {
+        HotInventoryService service = startedService(10, 0);
+
+        assertThat(service.tryReserve(PRODUCT_ID, UUID.randomUUID(), 4)).isTrue();
+        assertThat(service.available(PRODUCT_ID)).isEqualTo(6);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(service.available(PRODUCT_ID)).isEqualTo(10);
+    }
+
+    @Test
+    void tryReserve_whenStockIsShort_shouldRefuseWithoutJournaling() {
+        HotInventoryService service = startedService(3, 0);
+
+        assertThat(service.tryReserve(PRODUCT_ID, UUID.randomUUID(), 4)).isFalse();
+
+        assertThat(service.available(PRODUCT_ID)).isEqualTo(3);
+        verify(journalRepository, never()).save(any());
+    }
+
+    @Test
+    void flush_shouldApplyTheJournalToTheRowAndPickUpAnOutsideRestock() {
+        HotInventoryService service = startedService(10, 0);
+        service.tryReserve(PRODUCT_ID, UUID.randomUUID(), 3);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        List<InventoryJournalEntry> journal = List.of(InventoryJournalEntry.builder()
+                .productId(PRODUCT_ID).orderId(UUID.randomUUID()).quantity(3).createdAt(Instant.now()).build());
+        when(journalRepository.findAllByOrderById(Limit.of(1000))).thenReturn(journal);
+//        the row was restocked by 2 behind the engine's back
+        when(productRepository.findAllByIdForUpdate(anyCollection()))
+                .thenReturn(List.of(new Product(PRODUCT_ID, "Hot Product", "test", 20.0, 12)));
+
+        service.flush();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(productRepository).setStock(PRODUCT_ID, 9);
+        verify(journalRepository).deleteAllInBatch(journal);
+        assertThat(service.available(PRODUCT_ID)).isEqualTo(9);
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.productservice.config.DedupeProperties;
+import com.github.gavro081.productservice.repositories.ProcessedEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProcessedEventPurgerTest {
+    @Mock
+    private ProcessedEventRepository processedEventRepository;
+    @Mock
+    private ProcessedEventService processedEventService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProcessedEventPurger purger(Duration retention) {
+        DedupeProperties properties = new DedupeProperties(
+                1000, 0.01, 100, retention, Duration.ofMinutes(10), 100);
+        return new ProcessedEventPurger(processedEventRepository, processedEventService, properties, meterRegistry);
+    }
+
+    @Test
+    void purge_DeletesInBatchesUntilABatchComesBackShort() {
+        when(processedEventRepository.deleteOlderThan(any(Instant.class), eq(100)))
+                .thenReturn(100, 100, 42);
+
+        purger(Duration.ofDays(7)).purge();
+
+        verify(processedEventRepository, times(3)).deleteOlderThan(any(Instant.class), eq(100));
+        assertThat(meterRegistry.counter("dedupe.purge.deleted").count()).isEqualTo(242);
+        assertThat(meterRegistry.counter("dedupe.purge.batches").count()).isEqualTo(3);
+        verify(processedEventService).rebuildFilter();
+    }
+
+    @Test
+    void purge_NothingExpired_KeepsTheFilter() {
+        when(processedEventRepository.deleteOlderThan(any(Instant.class), eq(100))).thenReturn(0);
+
+        purger(Duration.ofDays(7)).purge();
+
+        verify(processedEventService, never()).rebuildFilter();
+    }
+
+    @Test
+    void purge_ZeroRetention_KeepsEverything() {
+        purger(Duration.ZERO).purge();
+
+        verify(processedEventRepository, never()).deleteOlderThan(any(), anyInt());
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.gavro081.productservice.services;
+
+import com.github.gavro081.common.events.ProductChangedEvent;
+import com.github.gavro081.productservice.models.Product;
+import com.github.gavro081.productservice.repositories.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCatalog productCatalog;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        when(productRepository.findAll()).thenReturn(List.of(new Product(101L, "mouse", "electronics", 29.99, 200)));
+        productCatalog = new ProductCatalog(productRepository, meterRegistry);
+        productCatalog.load();
+    }
+
+    @Test
+    void findByName_shouldServeLoadedProductsFromMemoryAndReadThroughOnMiss() {
+        when(productRepository.findByName("desk")).thenReturn(new Product(102L, "desk", "furniture", 599.99, 15));
+
+        assertThat(productCatalog.findByName("mouse").getId()).isEqualTo(101L);
+        assertThat(productCatalog.findByName("desk").getId()).isEqualTo(102L);
+        assertThat(productCatalog.findByName("desk").getId()).isEqualTo(102L);
+
+        verify(productRepository, never()).findByName("mouse");
+        verify(productRepository, times(1)).findByName("desk");
+        assertThat(meterRegistry.counter("product.catalog.lookups", "result", "hit").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("product.catalog.lookups", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    void adjustStockAndProductChanges_shouldKeepTheCatalogInStepWithTheTable() {
+        productCatalog.adjustStock(101L, -5);
+        assertThat(productCatalog.findByName("mouse").getQuantity()).isEqualTo(195);
+
+        when(productRepository.findById(101L)).thenReturn(Optional.empty());
+        productCatalog.onProductChanged(new ProductChangedEvent(101L, "mouse"));
+        assertThat(productCatalog.getProducts()).isEmpty();
+    }
+
+    @Test
+    void refresh_shouldCorrectEntriesThatDriftedFromTheTable() {
+        when(productRepository.findAll()).thenReturn(List.of(new Product(101L, "mouse", "electronics", 29.99, 150)));
+
+        productCatalog.refresh();
+
+        assertThat(productCatalog.findByName("mouse").getQuantity()).isEqualTo(150);
+        assertThat(meterRegistry.counter("product.catalog.drift").count()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_shouldNotOverwriteAStockChangeThatCommittedWhileItWasReading() {
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            // the table was read before this reservation committed
+            List<Product> stale = List.of(new Product(101L, "mouse", "electronics", 29.99, 200));
+            productCatalog.adjustStock(101L, -5);
+            return stale;
+        });
+
+        productCatalog.refresh();
+
+        assertThat(productCatalog.findByName("mouse").getQuantity()).isEqualTo(195);
+        assertThat(meterRegistry.counter("product.catalog.drift").count()).isZero();
+    }
+}
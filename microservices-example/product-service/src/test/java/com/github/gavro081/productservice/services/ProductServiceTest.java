@@ -6,23 +6,29 @@ import com.github.gavro081.common.events.BalanceDebitFailedEvent;
 import com.github.gavro081.common.events.InventoryReservationFailedEvent;
 import com.github.gavro081.common.events.InventoryReservedEvent;
 import com.github.gavro081.common.events.OrderCreatedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.github.gavro081.productservice.exceptions.ProductNotFoundException;
 import com.github.gavro081.productservice.models.Product;
 import com.github.gavro081.productservice.repositories.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -34,7 +40,11 @@ class ProductServiceTest {
     @Mock
     private ProcessedEventService processedEventService;
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private ConfirmingPublisher publisher;
+    @Mock
+    private HotInventoryService hotInventory;
+    @Mock
+    private ProductCatalog productCatalog;
 
     @InjectMocks
     private ProductService productService;
@@ -52,28 +62,47 @@ class ProductServiceTest {
 
     @Test
     void reserveInventory_whenStockIsSufficient_shouldDecreaseStockAndPublishSuccess() {
-        when(productRepository.findById(101L)).thenReturn(Optional.of(sampleProduct));
+        when(productRepository.decrementStock(101L, 5)).thenReturn(1);
+        when(productCatalog.findById(101L)).thenReturn(Optional.of(sampleProduct));
         doNothing().when(processedEventService).markActionAsProcessed(any(), any());
 
         productService.reserveInventory(reserveEvent);
 
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository).save(productCaptor.capture());
-        assertThat(productCaptor.getValue().getQuantity()).isEqualTo(5);
+        verify(productRepository).decrementStock(101L, 5);
+        verify(productRepository, never()).save(any());
+        verify(productCatalog).adjustStock(101L, -5);
 
-        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_NAME), eq("inventory.reserved"), any(InventoryReservedEvent.class));
+        ArgumentCaptor<InventoryReservedEvent> eventCaptor = ArgumentCaptor.forClass(InventoryReservedEvent.class);
+        verify(publisher).publish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("inventory.reserved"), eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getTotalPrice()).isEqualTo(100.0);
     }
 
     @Test
     void reserveInventory_whenStockIsInsufficient_shouldPublishFailure() {
         sampleProduct.setQuantity(2);
+        when(productRepository.decrementStock(101L, 5)).thenReturn(0);
         when(productRepository.findById(101L)).thenReturn(Optional.of(sampleProduct));
         doNothing().when(processedEventService).markActionAsProcessed(any(), any());
 
         productService.reserveInventory(reserveEvent);
 
         verify(productRepository, never()).save(any());
-        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_NAME), eq("inventory.failed"), any(InventoryReservationFailedEvent.class));
+        ArgumentCaptor<InventoryReservationFailedEvent> eventCaptor = ArgumentCaptor.forClass(InventoryReservationFailedEvent.class);
+        verify(publisher).publish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("inventory.failed"), eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getReason()).isEqualTo(ReservationFailureReason.INSUFFICIENT_STOCK);
+    }
+
+    @Test
+    void reserveInventory_whenProductIsMissing_shouldPublishNotFoundFailure() {
+        when(productRepository.decrementStock(101L, 5)).thenReturn(0);
+        when(productRepository.findById(101L)).thenReturn(Optional.empty());
+        doNothing().when(processedEventService).markActionAsProcessed(any(), any());
+
+        productService.reserveInventory(reserveEvent);
+
+        ArgumentCaptor<InventoryReservationFailedEvent> eventCaptor = ArgumentCaptor.forClass(InventoryReservationFailedEvent.class);
+        verify(publisher).publish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("inventory.failed"), eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getReason()).isEqualTo(ReservationFailureReason.PRODUCT_NOT_FOUND);
     }
 
     @Test
@@ -83,18 +112,70 @@ class ProductServiceTest {
         productService.reserveInventory(reserveEvent);
 
         verifyNoInteractions(productRepository);
-        verifyNoInteractions(rabbitTemplate);
+        verifyNoInteractions(publisher);
     }
 
     @Test
     void freeInventory_whenCalled_shouldIncreaseStock() {
-        when(productRepository.findById(101L)).thenReturn(Optional.of(sampleProduct));
+        when(productRepository.incrementStock(101L, 5)).thenReturn(1);
         doNothing().when(processedEventService).markActionAsProcessed(any(), any());
 
         productService.freeInventory(freeEvent);
 
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository).save(productCaptor.capture());
-        assertThat(productCaptor.getValue().getQuantity()).isEqualTo(15);
+        verify(productRepository).incrementStock(101L, 5);
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void freeInventory_whenProductIsMissing_shouldThrow() {
+        when(productRepository.incrementStock(101L, 5)).thenReturn(0);
+        doNothing().when(processedEventService).markActionAsProcessed(any(), any());
+
+        assertThatThrownBy(() -> productService.freeInventory(freeEvent))
+                .isInstanceOf(ProductNotFoundException.class);
+    }
+
+    @Test
+    void reserveInventoryBatch_shouldGroupByProductAndPublishAllOutcomesTogether() {
+        OrderCreatedEvent first = new OrderCreatedEvent(UUID.randomUUID(), "101", "1", 6, "test-user");
+        OrderCreatedEvent second = new OrderCreatedEvent(UUID.randomUUID(), "101", "2", 6, "other-user");
+        OrderCreatedEvent missing = new OrderCreatedEvent(UUID.randomUUID(), "202", "1", 1, "test-user");
+        when(processedEventService.markNewAsProcessed(anyList(), eq("INVENTORY_RESERVATION")))
+                .thenReturn(new LinkedHashSet<>(List.of(first.getEventId(), second.getEventId(), missing.getEventId())));
+        when(productRepository.findAllByIdForUpdate(any())).thenReturn(List.of(sampleProduct));
+        when(productRepository.decrementStock(101L, 6)).thenReturn(1);
+
+        productService.reserveInventoryBatch(List.of(first, second, missing, first));
+
+        // only the first order fits into the 10 items in stock, and the duplicate is skipped
+        verify(productRepository, times(1)).decrementStock(anyLong(), anyInt());
+        // nothing is published until the dedupe rows and the decrement have been written
+        InOrder inOrder = inOrder(processedEventService, productRepository, publisher);
+        inOrder.verify(processedEventService).markNewAsProcessed(anyList(), eq("INVENTORY_RESERVATION"));
+        inOrder.verify(productRepository).decrementStock(101L, 6);
+        ArgumentCaptor<List<ConfirmingPublisher.Outgoing>> batchCaptor = ArgumentCaptor.captor();
+        inOrder.verify(publisher, times(1)).publishAll(batchCaptor.capture());
+        verifyNoMoreInteractions(publisher);
+        List<ConfirmingPublisher.Outgoing> batch = batchCaptor.getValue();
+        assertThat(batch).extracting(ConfirmingPublisher.Outgoing::exchange).containsOnly(RabbitMQConfig.EXCHANGE_NAME);
+        assertThat(batch).filteredOn(outgoing -> outgoing.routingKey().equals("inventory.reserved"))
+                .singleElement()
+                .extracting(ConfirmingPublisher.Outgoing::payload)
+                .isInstanceOf(InventoryReservedEvent.class);
+        assertThat(batch).filteredOn(outgoing -> outgoing.routingKey().equals("inventory.failed"))
+                .extracting(outgoing -> ((InventoryReservationFailedEvent) outgoing.payload()).getReason())
+                .containsExactly(ReservationFailureReason.INSUFFICIENT_STOCK, ReservationFailureReason.PRODUCT_NOT_FOUND);
+    }
+
+    @Test
+    void reserveInventory_whenProductIsHot_shouldReserveInMemoryWithoutTouchingTheRow() {
+        when(hotInventory.isHot(101L)).thenReturn(true);
+        when(hotInventory.tryReserve(101L, reserveEvent.getOrderId(), 5)).thenReturn(true);
+        when(productCatalog.findById(101L)).thenReturn(Optional.of(sampleProduct));
+
+        productService.reserveInventory(reserveEvent);
+
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+        verify(publisher).publish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("inventory.reserved"), any(InventoryReservedEvent.class));
     }
 }
@@ -0,0 +1,56 @@
+package com.github.gavro081.productservice.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedStockTest {
+
+    @Test
+    void tryReserve_whenNoSingleStripeIsEnough_shouldStillUseTheWholeStock() {
+        StripedStock stock = new StripedStock(10, 4);
+
+        assertThat(stock.tryReserve(9)).isTrue();
+        assertThat(stock.tryReserve(2)).isFalse();
+        assertThat(stock.tryReserve(1)).isTrue();
+        assertThat(stock.available()).isZero();
+    }
+
+    @Test
+    void tryReserve_underContention_shouldNeverHandOutMoreThanTheStock() throws Exception {
+        StripedStock stock = new StripedStock(1000, 8);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 200; j++) {
+                    if (stock.tryReserve(1)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(reserved.get()).isEqualTo(1000);
+        assertThat(stock.available()).isZero();
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.gavro081.userservice.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "microservices.users.batch-listener.enabled", havingValue = "true")
+@EnableConfigurationProperties(BatchListenerProperties.class)
+public class BatchListenerConfig {
+    public static final String BATCH_CONTAINER_FACTORY = "usersBatchContainerFactory";
+
+    @Bean(BATCH_CONTAINER_FACTORY)
+    SimpleRabbitListenerContainerFactory usersBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            BatchListenerProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(properties.batchSize());
+        factory.setReceiveTimeout(properties.receiveTimeout().toMillis());
+        factory.setPrefetchCount(Math.max(properties.batchSize(), 250));
+//        the listener acks each message itself and falls back to one at a time on failure, so
+//        neither the stateless retry interceptor nor a whole-batch requeue may replay the successes
+        factory.setAdviceChain();
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+}
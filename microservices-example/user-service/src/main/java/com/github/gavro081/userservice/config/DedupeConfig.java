@@ -0,0 +1,18 @@
+package com.github.gavro081.userservice.config;
+
+import com.github.gavro081.common.dedupe.ProcessedEventFilter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(DedupeProperties.class)
+public class DedupeConfig {
+    @Bean
+    public ProcessedEventFilter processedEventFilter(DedupeProperties properties) {
+        return new ProcessedEventFilter(
+                properties.expectedInsertions(), properties.falsePositiveRate(), properties.recentCapacity());
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.gavro081.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the in-memory front of the processed_events table. The Bloom filter is sized for
+ * {@code expectedInsertions} ids; past that its false-positive rate climbs, which costs
+ * extra lookups but never a wrong answer.
+ * <p>
+ * Rows older than {@code retention} are purged in batches of {@code purgeBatchSize}, so an
+ * event redelivered after the retention window is treated as new. A zero retention keeps rows forever.
+ */
+@ConfigurationProperties(prefix = "microservices.dedupe")
+public record DedupeProperties(
+        @DefaultValue("1000000") long expectedInsertions,
+        @DefaultValue("0.01") double falsePositiveRate,
+        @DefaultValue("10000") int recentCapacity,
+        @DefaultValue("7d") Duration retention,
+        @DefaultValue("10m") Duration purgeInterval,
+        @DefaultValue("5000") int purgeBatchSize
+) {
+}
@@ -0,0 +1,82 @@
+package com.github.gavro081.userservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.InventoryReservedEvent;
+import com.github.gavro081.userservice.config.BatchListenerConfig;
+import com.github.gavro081.userservice.services.UserService;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch-mode replacement for {@link UserEventListener}. Debits in a batch are applied in one
+ * transaction; if that fails, each one is retried on its own. Messages are acked one by one, so a
+ * debit that fails on its own too (or can't be read) is rejected without requeue, which
+ * dead-letters it into users_queue_dlq, while the rest of the batch is acked and nothing that
+ * already went through is redelivered.
+ */
+@Component
+@ConditionalOnProperty(name = "microservices.users.batch-listener.enabled", havingValue = "true")
+public class UserBatchEventListener {
+    private static final Logger log = LoggerFactory.getLogger(UserBatchEventListener.class);
+    private final UserService userService;
+    private final RabbitTemplate rabbitTemplate;
+
+    private record Delivery(long tag, InventoryReservedEvent event) {}
+
+    public UserBatchEventListener(UserService userService, RabbitTemplate rabbitTemplate) {
+        this.userService = userService;
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.USERS_LISTENER_QUEUES, containerFactory = BatchListenerConfig.BATCH_CONTAINER_FACTORY)
+    public void handleBatch(List<Message> messages, Channel channel) throws IOException {
+        List<Delivery> deliveries = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            long tag = message.getMessageProperties().getDeliveryTag();
+            try {
+                if (rabbitTemplate.getMessageConverter().fromMessage(message) instanceof InventoryReservedEvent event) {
+                    deliveries.add(new Delivery(tag, event));
+                    continue;
+                }
+                log.warn("Rejecting unexpected message on {}", RabbitMQConfig.USERS_QUEUE);
+            } catch (Exception e) {
+                log.error("Rejecting unreadable message on {}", RabbitMQConfig.USERS_QUEUE, e);
+            }
+            channel.basicReject(tag, false);
+        }
+        if (deliveries.isEmpty()) {
+            return;
+        }
+
+        log.info("Received a batch of {} InventoryReservedEvents", deliveries.size());
+        try {
+            userService.debitUserBalanceBatch(deliveries.stream().map(Delivery::event).toList());
+            for (Delivery delivery : deliveries) {
+                channel.basicAck(delivery.tag(), false);
+            }
+            return;
+        } catch (Exception e) {
+            log.warn("Batch of {} debits failed, falling back to one at a time", deliveries.size(), e);
+        }
+
+        for (Delivery delivery : deliveries) {
+            try {
+                userService.debitUserBalance(delivery.event());
+                channel.basicAck(delivery.tag(), false);
+            } catch (RuntimeException e) {
+                log.error("Failed to debit balance for orderId: {}, rejecting it", delivery.event().getOrderId(), e);
+                channel.basicReject(delivery.tag(), false);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.gavro081.userservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.UserChangedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
+import com.github.gavro081.userservice.models.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that announces user edits, so that order-service can evict
+ * the user from its lookup cache. Balance debits go through a bulk update in
+ * UserRepository and therefore don't trigger it.
+ */
+@Component
+public class UserChangeListener {
+    private final ConfirmingPublisher publisher;
+
+    public UserChangeListener(ConfirmingPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostUpdate
+    @PostRemove
+    void onUserChanged(User user) {
+        publisher.publish(
+                RabbitMQConfig.EXCHANGE_NAME,
+                RabbitMQConfig.USER_CHANGED_KEY,
+                new UserChangedEvent(user.getId(), user.getUsername()));
+    }
+}
@@ -7,10 +7,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
-@RabbitListener(queues = RabbitMQConfig.USERS_QUEUE)
+@ConditionalOnProperty(name = "microservices.users.batch-listener.enabled", havingValue = "false", matchIfMissing = true)
+@RabbitListener(queues = RabbitMQConfig.USERS_LISTENER_QUEUES)
 public class UserEventListener {
     private static final Logger log = LoggerFactory.getLogger(UserEventListener.class);
     private final UserService userService;
@@ -1,25 +1,24 @@
 package com.github.gavro081.userservice.models;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.IdClass;
-import jakarta.persistence.Table;
+import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "processed_events")
+@Table(name = "processed_events", indexes = @Index(name = "idx_processed_events_timestamp", columnList = "timestamp"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @IdClass(ProcessedEventId.class)
-public class ProcessedEvent {
+public class ProcessedEvent implements Persistable<ProcessedEventId> {
     @Id
     private UUID orderId;
 
@@ -27,4 +26,26 @@ public class ProcessedEvent {
     private String context;
 
     Instant timestamp;
+
+//    ids are assigned, so without this save() would merge (select, then insert) instead of inserting
+    @Transient
+    @Builder.Default
+    @EqualsAndHashCode.Exclude
+    private boolean persisted = false;
+
+    @Override
+    public ProcessedEventId getId() {
+        return new ProcessedEventId(orderId, context);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
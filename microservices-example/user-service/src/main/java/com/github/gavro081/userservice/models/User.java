@@ -1,5 +1,6 @@
 package com.github.gavro081.userservice.models;
 
+import com.github.gavro081.userservice.listeners.UserChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
@@ -9,6 +10,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(UserChangeListener.class)
 @Data
 @Table(name = "users")
 @Builder
@@ -0,0 +1,71 @@
+package com.github.gavro081.userservice.services;
+
+import com.github.gavro081.userservice.config.DedupeProperties;
+import com.github.gavro081.userservice.repositories.ProcessedEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enforces the processed_events retention window by deleting expired rows in bounded
+ * batches, oldest first, until a batch comes back short. When anything was deleted, the
+ * dedupe filter is rebuilt from what is left.
+ */
+@Service
+public class ProcessedEventPurger {
+    private final Logger logger = LoggerFactory.getLogger(ProcessedEventPurger.class);
+    private final ProcessedEventRepository processedEventRepository;
+    private final ProcessedEventService processedEventService;
+    private final DedupeProperties properties;
+    private final Counter deletedRows;
+    private final Counter batches;
+    private final Timer purgeDuration;
+    private final AtomicLong lastCutoff = new AtomicLong();
+
+    public ProcessedEventPurger(ProcessedEventRepository processedEventRepository,
+                                ProcessedEventService processedEventService,
+                                DedupeProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.processedEventRepository = processedEventRepository;
+        this.processedEventService = processedEventService;
+        this.properties = properties;
+        this.deletedRows = meterRegistry.counter("dedupe.purge.deleted");
+        this.batches = meterRegistry.counter("dedupe.purge.batches");
+        this.purgeDuration = meterRegistry.timer("dedupe.purge.duration");
+        meterRegistry.gauge("dedupe.purge.cutoff.epoch.seconds", lastCutoff);
+    }
+
+    @Scheduled(fixedDelayString = "${microservices.dedupe.purge-interval:10m}",
+            initialDelayString = "${microservices.dedupe.purge-interval:10m}")
+    public void purge() {
+        if (properties.retention().isZero() || properties.retention().isNegative()) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(properties.retention());
+        long deleted = purgeDuration.record(() -> purgeOlderThan(cutoff));
+        lastCutoff.set(cutoff.getEpochSecond());
+        if (deleted > 0) {
+            logger.info("Purged {} processed events older than {}", deleted, cutoff);
+            processedEventService.rebuildFilter();
+        }
+    }
+
+    long purgeOlderThan(Instant cutoff) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = processedEventRepository.deleteOlderThan(cutoff, properties.purgeBatchSize());
+            batches.increment();
+            deletedRows.increment(deleted);
+            total += deleted;
+        } while (deleted == properties.purgeBatchSize());
+        return total;
+    }
+}
@@ -1,26 +1,172 @@
 package com.github.gavro081.userservice.services;
 
+import com.github.gavro081.common.dedupe.ProcessedEventFilter;
 import com.github.gavro081.userservice.models.ProcessedEvent;
+import com.github.gavro081.userservice.models.ProcessedEventId;
 import com.github.gavro081.userservice.repositories.ProcessedEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Idempotency checks for incoming events. The processed_events primary key is the source of
+ * truth; a {@link ProcessedEventFilter} in front of it lets first-seen events skip the lookup
+ * and rejects recent redeliveries without touching the database.
+ */
 @Service
 public class ProcessedEventService {
+    private final Logger logger = LoggerFactory.getLogger(ProcessedEventService.class);
     private final ProcessedEventRepository processedEventRepository;
+    private final ProcessedEventFilter processedEventFilter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Counter recentHits;
+    private final Counter databaseHits;
+    private final Counter falsePositives;
+    private final Counter skippedLookups;
 
-    public ProcessedEventService(ProcessedEventRepository processedEventRepository) {
+    public ProcessedEventService(ProcessedEventRepository processedEventRepository,
+                                 ProcessedEventFilter processedEventFilter,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
         this.processedEventRepository = processedEventRepository;
+        this.processedEventFilter = processedEventFilter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.recentHits = meterRegistry.counter("dedupe.hits", "source", "recent");
+        this.databaseHits = meterRegistry.counter("dedupe.hits", "source", "database");
+        this.falsePositives = meterRegistry.counter("dedupe.bloom.false.positives");
+        this.skippedLookups = meterRegistry.counter("dedupe.lookups.skipped");
     }
 
+    /**
+     * Seeds the dedupe filter from the table at startup, and again after each purge so that
+     * deleted rows stop matching.
+     */
+    @PostConstruct
+    void rebuildFilter() {
+        long seeded = processedEventFilter.rebuild(seed -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ProcessedEventId> ids = processedEventRepository.streamAllIds()) {
+                ids.forEach(id -> seed.accept(id.getOrderId(), id.getContext()));
+            }
+        }));
+        logger.info("Seeded dedupe filter with {} processed events", seeded);
+    }
+
+    /**
+     * Records the event, or throws {@link DuplicateKeyException} if it was processed before.
+     */
     void markActionAsProcessed(UUID orderId, String context){
+        switch (processedEventFilter.check(orderId, context)) {
+            case DUPLICATE -> {
+                recentHits.increment();
+                throw duplicate(orderId, context);
+            }
+            case UNKNOWN -> {
+                if (processedEventRepository.existsById(new ProcessedEventId(orderId, context))) {
+                    databaseHits.increment();
+                    throw duplicate(orderId, context);
+                }
+                falsePositives.increment();
+            }
+            case NEW -> skippedLookups.increment();
+        }
         ProcessedEvent event = ProcessedEvent.builder()
                 .orderId(orderId)
                 .context(context)
                 .timestamp(Instant.now())
                 .build();
-        processedEventRepository.save(event);
+//        flushed right away so a concurrent duplicate fails here, inside the caller's
+//        DataIntegrityViolationException handler, rather than at commit after events went out
+        try {
+            processedEventRepository.saveAndFlush(event);
+        } catch (DataIntegrityViolationException e) {
+//            the violation leaves the transaction rollback-only, so the message comes back;
+//            remembering the id makes that redelivery a lookup instead of another failed insert
+            processedEventFilter.record(orderId, context);
+            throw e;
+        }
+        recordAfterCommit(List.of(orderId), context);
+    }
+
+    /**
+     * Marks a batch of orders with at most one lookup, covering only the ids the filter cannot
+     * rule out. Returns the ids that were not processed before, in their original order; ids
+     * repeated within the batch are only returned once. The new rows are flushed before this
+     * returns, so callers can publish knowing none of them was a duplicate.
+     */
+    Set<UUID> markNewAsProcessed(List<UUID> orderIds, String context) {
+        Set<UUID> alreadyProcessed = new LinkedHashSet<>();
+        List<ProcessedEventId> toLookUp = new ArrayList<>();
+        for (UUID orderId : new LinkedHashSet<>(orderIds)) {
+            switch (processedEventFilter.check(orderId, context)) {
+                case DUPLICATE -> {
+                    recentHits.increment();
+                    alreadyProcessed.add(orderId);
+                }
+                case UNKNOWN -> toLookUp.add(new ProcessedEventId(orderId, context));
+                case NEW -> skippedLookups.increment();
+            }
+        }
+        if (!toLookUp.isEmpty()) {
+            Set<UUID> found = processedEventRepository.findAllById(toLookUp).stream()
+                    .map(ProcessedEvent::getOrderId)
+                    .collect(Collectors.toSet());
+            databaseHits.increment(found.size());
+            falsePositives.increment(toLookUp.size() - found.size());
+            alreadyProcessed.addAll(found);
+        }
+
+        Set<UUID> fresh = new LinkedHashSet<>();
+        List<ProcessedEvent> events = new ArrayList<>();
+        Instant now = Instant.now();
+        for (UUID orderId : orderIds) {
+            if (!alreadyProcessed.contains(orderId) && fresh.add(orderId)) {
+                events.add(ProcessedEvent.builder()
+                        .orderId(orderId)
+                        .context(context)
+                        .timestamp(now)
+                        .build());
+            }
+        }
+        processedEventRepository.saveAllAndFlush(events);
+        recordAfterCommit(fresh, context);
+        return fresh;
+    }
+
+    private void recordAfterCommit(Collection<UUID> ids, String context) {
+        List<UUID> committed = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed.forEach(id -> processedEventFilter.record(id, context));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.forEach(id -> processedEventFilter.record(id, context));
+            }
+        });
+    }
+
+    private static DuplicateKeyException duplicate(UUID orderId, String context) {
+        return new DuplicateKeyException("Event " + orderId + " already processed for " + context);
     }
 }
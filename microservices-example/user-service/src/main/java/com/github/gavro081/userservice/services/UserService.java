@@ -5,33 +5,43 @@ import com.github.gavro081.common.enums.DebitFailureReason;
 import com.github.gavro081.common.events.BalanceDebitFailedEvent;
 import com.github.gavro081.common.events.BalanceDebitedEvent;
 import com.github.gavro081.common.events.InventoryReservedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
 import com.github.gavro081.userservice.models.User;
 import com.github.gavro081.userservice.repositories.ProcessedEventRepository;
 import com.github.gavro081.userservice.repositories.UserRepository;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
     private final Logger logger = LoggerFactory.getLogger(UserService.class);
-    private final RabbitTemplate rabbitTemplate;
+    private final ConfirmingPublisher publisher;
     private final ProcessedEventService processedEventService;
 
-    public UserService(UserRepository userRepository, RabbitTemplate rabbitTemplate, ProcessedEventService processedEventService) {
+    public UserService(UserRepository userRepository, ConfirmingPublisher publisher, ProcessedEventService processedEventService) {
         this.userRepository = userRepository;
-        this.rabbitTemplate = rabbitTemplate;
+        this.publisher = publisher;
         this.processedEventService = processedEventService;
     }
 
     private static final String CONTEXT_DEBIT = "BALANCE_DEBIT";
 
+    private record DebitOutcome(String routingKey, Object event) {}
+
     public List<User> getUsers(){
         return userRepository.findAll();
     }
@@ -51,35 +61,100 @@ public class UserService {
             return;
         }
 
-        User user;
-        try {
-            user = getUserById(Long.parseLong(event.getUserId()));
-        } catch (RuntimeException e){
+        long userId = Long.parseLong(event.getUserId());
+        if (userRepository.debitBalance(userId, event.getTotalPrice()) == 1) {
+            publishSuccessEvent(event, userId);
+        } else if (!userRepository.existsById(userId)) {
             logger.warn("Could not bill user because user {} is not found. Publishing failure event.", event.getUserId());
             publishFailureEvent(
                     event,
                     DebitFailureReason.USER_NOT_FOUND,
                     "User not found"
             );
-            return;
-        }
-        if (event.getTotalPrice() <= user.getBalance()){
-            user.setBalance(user.getBalance() - event.getTotalPrice());
-            userRepository.save(user);
-            publishSuccessEvent(event, user);
         } else {
-            logger.warn("Insufficient funds, needed: {}, user has: {}", event.getTotalPrice(), user.getBalance());
+            logger.warn("Insufficient funds for user {}, needed: {}", event.getUserId(), event.getTotalPrice());
             publishFailureEvent(
                     event,
                     DebitFailureReason.INSUFFICIENT_FUNDS,
                     "Insufficient funds"
             );
         }
+    }
 
+    /**
+     * Batch counterpart of {@link #debitUserBalance}: one dedupe query, one locked read of the
+     * users involved and one guarded debit per user. Each order still succeeds or fails on its own:
+     * a user's orders are charged in arrival order, and one that no longer fits the remaining
+     * balance fails without affecting the others.
+     * <p>
+     * As with product-service's reservation batch, the outcomes are published before commit but
+     * only once the flushed dedupe rows and the debits are in the database, so a duplicate fails
+     * before anything goes out and a failed commit only leads to a redelivery that consumers dedupe.
+     */
+    @Transactional
+    public void debitUserBalanceBatch(List<InventoryReservedEvent> events) {
+        Set<UUID> fresh = processedEventService.markNewAsProcessed(
+                events.stream().map(InventoryReservedEvent::getOrderId).toList(), CONTEXT_DEBIT);
+        List<InventoryReservedEvent> toDebit = new ArrayList<>(fresh.size());
+        for (InventoryReservedEvent event : events) {
+            if (fresh.remove(event.getOrderId())) {
+                toDebit.add(event);
+            } else {
+                logger.warn("Duplicate BALANCE_DEBIT for order {}. ignoring.", event.getOrderId());
+            }
+        }
+        if (toDebit.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        toDebit.forEach(event -> userIds.add(Long.parseLong(event.getUserId())));
+        Map<Long, User> users = userRepository.findAllByIdForUpdate(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<Long, Double> debited = new LinkedHashMap<>();
+        List<DebitOutcome> outcomes = new ArrayList<>(toDebit.size());
+        for (InventoryReservedEvent event : toDebit) {
+            long userId = Long.parseLong(event.getUserId());
+            User user = users.get(userId);
+            if (user == null) {
+                outcomes.add(new DebitOutcome("balance.failed",
+                        balanceDebitFailedEvent(event, DebitFailureReason.USER_NOT_FOUND, "User not found")));
+            } else if (user.getBalance() - debited.getOrDefault(userId, 0.0) >= event.getTotalPrice()) {
+                debited.merge(userId, event.getTotalPrice(), Double::sum);
+                outcomes.add(new DebitOutcome("balance.success", balanceDebitedEvent(event, userId)));
+            } else {
+                logger.warn("Insufficient funds for user {}, needed: {}", event.getUserId(), event.getTotalPrice());
+                outcomes.add(new DebitOutcome("balance.failed",
+                        balanceDebitFailedEvent(event, DebitFailureReason.INSUFFICIENT_FUNDS, "Insufficient funds")));
+            }
+        }
+
+//        the rows are locked until commit, so the guarded debits can only fail if that invariant breaks
+        debited.forEach((userId, amount) -> {
+            if (userRepository.debitBalance(userId, amount) != 1) {
+                throw new IllegalStateException("Balance of user " + userId + " changed while it was locked");
+            }
+        });
+        publisher.publishAll(outcomes.stream()
+                .map(outcome -> new ConfirmingPublisher.Outgoing(
+                        RabbitMQConfig.EXCHANGE_NAME, outcome.routingKey(), outcome.event()))
+                .toList());
+        logger.info("Processed a batch of {} debits across {} users", toDebit.size(), userIds.size());
     }
 
     private void publishFailureEvent(InventoryReservedEvent event, DebitFailureReason reason, String message) {
-        BalanceDebitFailedEvent failedEvent = BalanceDebitFailedEvent.builder()
+        publisher.publish(RabbitMQConfig.EXCHANGE_NAME, "balance.failed",
+                balanceDebitFailedEvent(event, reason, message));
+    }
+    private void publishSuccessEvent(InventoryReservedEvent event, Long userId){
+        publisher.publish(RabbitMQConfig.EXCHANGE_NAME, "balance.success",
+                balanceDebitedEvent(event, userId));
+    }
+
+    private static BalanceDebitFailedEvent balanceDebitFailedEvent(
+            InventoryReservedEvent event, DebitFailureReason reason, String message) {
+        return BalanceDebitFailedEvent.builder()
                 .orderId(event.getOrderId())
                 .username(event.getUsername())
                 .productId(event.getProductId())
@@ -87,18 +162,17 @@ public class UserService {
                 .quantity(event.getQuantity())
                 .message(message)
                 .build();
-        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, "balance.failed", failedEvent);
     }
-    private void publishSuccessEvent(InventoryReservedEvent event, User user){
-        BalanceDebitedEvent newEvent = BalanceDebitedEvent.builder()
+
+    private static BalanceDebitedEvent balanceDebitedEvent(InventoryReservedEvent event, Long userId) {
+        return BalanceDebitedEvent.builder()
                 .orderId(event.getOrderId())
-                .userId(user.getId())
+                .userId(userId)
                 .productId(event.getProductId())
                 .totalPrice(event.getTotalPrice())
                 .productName(event.getProductName())
                 .username(event.getUsername())
                 .build();
-        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, "balance.success", newEvent);
     }
 
     public User getUserByUsername(String name) {
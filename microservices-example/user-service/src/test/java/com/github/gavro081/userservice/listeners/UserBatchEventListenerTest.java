@@ -0,0 +1,91 @@
+package com.github.gavro081.userservice.listeners;
+
+import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.events.InventoryReservedEvent;
+import com.github.gavro081.userservice.services.UserService;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserBatchEventListenerTest {
+    @Mock
+    private UserService userService;
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private Channel channel;
+
+    private UserBatchEventListener listener;
+
+    @BeforeEach
+    void setUp() {
+        when(rabbitTemplate.getMessageConverter()).thenReturn(RabbitMQConfig.jsonMessageConverter());
+        listener = new UserBatchEventListener(userService, rabbitTemplate);
+    }
+
+    private static InventoryReservedEvent event() {
+        return new InventoryReservedEvent(UUID.randomUUID(), "1", "101", "test-product", 1, 25.0, 25.0, "test-username");
+    }
+
+    private static Message message(Object payload, long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return RabbitMQConfig.jsonMessageConverter().toMessage(payload, properties);
+    }
+
+    @Test
+    void handleBatch_WhenBatchSucceeds_AcksEveryMessage() throws Exception {
+        listener.handleBatch(List.of(message(event(), 1), message(event(), 2)), channel);
+
+        verify(userService).debitUserBalanceBatch(anyList());
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, false);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    void handleBatch_WhenOneDebitFailsOnItsOwn_RejectsOnlyThatOneWithoutRequeue() throws Exception {
+        InventoryReservedEvent good = event();
+        InventoryReservedEvent bad = event();
+        doThrow(new IllegalStateException("db down")).when(userService).debitUserBalanceBatch(anyList());
+        doAnswer(invocation -> {
+            if (invocation.<InventoryReservedEvent>getArgument(0).getOrderId().equals(bad.getOrderId())) {
+                throw new IllegalStateException("db down");
+            }
+            return null;
+        }).when(userService).debitUserBalance(any());
+
+        listener.handleBatch(List.of(message(good, 1), message(bad, 2)), channel);
+
+        verify(channel).basicAck(1, false);
+        verify(channel).basicReject(2, false);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    void handleBatch_UnreadableMessage_IsRejectedAndTheRestProcessed() throws Exception {
+        Message unreadable = new Message("not json".getBytes(), new MessageProperties());
+        unreadable.getMessageProperties().setDeliveryTag(1);
+
+        listener.handleBatch(List.of(unreadable, message(event(), 2)), channel);
+
+        verify(channel).basicReject(1, false);
+        verify(userService).debitUserBalanceBatch(argThat(events -> events.size() == 1));
+        verify(channel).basicAck(2, false);
+        verify(userService, never()).debitUserBalance(any());
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.gavro081.userservice.services;
+
+import com.github.gavro081.common.dedupe.ProcessedEventFilter;
+import com.github.gavro081.userservice.models.ProcessedEvent;
+import com.github.gavro081.userservice.models.ProcessedEventId;
+import com.github.gavro081.userservice.repositories.ProcessedEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProcessedEventServiceTest {
+    private static final String CONTEXT = "BALANCE_DEBIT";
+
+    @Mock
+    private ProcessedEventRepository processedEventRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProcessedEventFilter filter;
+    private MeterRegistry meterRegistry;
+    private ProcessedEventService processedEventService;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ProcessedEventFilter(1000, 0.01, 100);
+        meterRegistry = new SimpleMeterRegistry();
+        processedEventService = new ProcessedEventService(
+                processedEventRepository, filter, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void markActionAsProcessed_FirstSeen_InsertsWithoutLookup() {
+        UUID orderId = UUID.randomUUID();
+
+        processedEventService.markActionAsProcessed(orderId, CONTEXT);
+
+        verify(processedEventRepository).saveAndFlush(any(ProcessedEvent.class));
+        verify(processedEventRepository, never()).existsById(any());
+        assertThat(meterRegistry.counter("dedupe.lookups.skipped").count()).isEqualTo(1);
+    }
+
+    @Test
+    void markActionAsProcessed_RecentlyProcessed_ThrowsWithoutTouchingDatabase() {
+        UUID orderId = UUID.randomUUID();
+        processedEventService.markActionAsProcessed(orderId, CONTEXT);
+        clearInvocations(processedEventRepository);
+
+        assertThatThrownBy(() -> processedEventService.markActionAsProcessed(orderId, CONTEXT))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        verifyNoInteractions(processedEventRepository);
+        assertThat(meterRegistry.counter("dedupe.hits", "source", "recent").count()).isEqualTo(1);
+    }
+
+    @Test
+    void markActionAsProcessed_SeededFromTable_ConfirmsWithDatabase() {
+        UUID orderId = UUID.randomUUID();
+        filter.seed(orderId, CONTEXT);
+        when(processedEventRepository.existsById(new ProcessedEventId(orderId, CONTEXT))).thenReturn(true);
+
+        assertThatThrownBy(() -> processedEventService.markActionAsProcessed(orderId, CONTEXT))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        verify(processedEventRepository, never()).saveAndFlush(any());
+        assertThat(meterRegistry.counter("dedupe.hits", "source", "database").count()).isEqualTo(1);
+    }
+
+    @Test
+    void markActionAsProcessed_ConcurrentDuplicate_FailsOnFlushAndIsRemembered() {
+        UUID orderId = UUID.randomUUID();
+        when(processedEventRepository.saveAndFlush(any(ProcessedEvent.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThatThrownBy(() -> processedEventService.markActionAsProcessed(orderId, CONTEXT))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(filter.check(orderId, CONTEXT)).isEqualTo(ProcessedEventFilter.Verdict.DUPLICATE);
+    }
+
+    @Test
+    void markNewAsProcessed_LooksUpOnlyIdsTheFilterCannotRuleOut() {
+        UUID fresh = UUID.randomUUID();
+        UUID seeded = UUID.randomUUID();
+        filter.seed(seeded, CONTEXT);
+        when(processedEventRepository.findAllById(List.of(new ProcessedEventId(seeded, CONTEXT))))
+                .thenReturn(List.of());
+
+        Set<UUID> result = processedEventService.markNewAsProcessed(List.of(fresh, seeded, fresh), CONTEXT);
+
+        assertThat(result).containsExactly(fresh, seeded);
+        verify(processedEventRepository).saveAllAndFlush(anyList());
+        assertThat(meterRegistry.counter("dedupe.bloom.false.positives").count()).isEqualTo(1);
+    }
+}
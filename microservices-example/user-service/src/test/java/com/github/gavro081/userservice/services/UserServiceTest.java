@@ -1,25 +1,32 @@
 package com.github.gavro081.userservice.services;
 
 import com.github.gavro081.common.config.RabbitMQConfig;
+import com.github.gavro081.common.enums.DebitFailureReason;
 import com.github.gavro081.common.events.BalanceDebitFailedEvent;
 import com.github.gavro081.common.events.BalanceDebitedEvent;
 import com.github.gavro081.common.events.InventoryReservedEvent;
+import com.github.gavro081.common.publisher.ConfirmingPublisher;
 import com.github.gavro081.userservice.models.User;
 import com.github.gavro081.userservice.repositories.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -28,7 +35,7 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private ConfirmingPublisher publisher;
     @Mock
     private ProcessedEventService processedEventService;
 
@@ -55,44 +62,50 @@ public class UserServiceTest {
 
     @Test
     void whenUserHasSufficientBalance_thenBalanceIsDebitedAndSuccessEventIsPublished(){
-        when(userRepository.findById(1L)).thenReturn(Optional.of(sampleUser));
+        when(userRepository.debitBalance(1L, 100.0)).thenReturn(1);
         doNothing().when(processedEventService).markActionAsProcessed(any(UUID.class), anyString());
 
         userService.debitUserBalance(sampleEvent);
-        assertThat(sampleUser.getBalance()).isEqualTo(50.0);
 
-        verify(userRepository).save(sampleUser);
-        verify(rabbitTemplate).convertAndSend(
+        verify(userRepository).debitBalance(1L, 100.0);
+        verify(userRepository, never()).save(any(User.class));
+        ArgumentCaptor<BalanceDebitedEvent> eventCaptor = ArgumentCaptor.forClass(BalanceDebitedEvent.class);
+        verify(publisher).publish(
                 eq(RabbitMQConfig.EXCHANGE_NAME),
                 eq("balance.success"),
-                any(BalanceDebitedEvent.class)
+                eventCaptor.capture()
         );
+        assertThat(eventCaptor.getValue().getUserId()).isEqualTo(1L);
 
-        verify(rabbitTemplate, never()).convertAndSend(anyString(), eq("balance.failed"), Optional.ofNullable(any()));
+        verify(publisher, never()).publish(anyString(), eq("balance.failed"), Optional.ofNullable(any()));
     }
 
     @Test
     void whenUserHasInsufficientBalance_thenFailureEventIsPublished() {
-        sampleUser.setBalance(50.0);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(sampleUser));
+        when(userRepository.debitBalance(1L, 100.0)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
         doNothing().when(processedEventService).markActionAsProcessed(any(UUID.class), anyString());
 
         userService.debitUserBalance(sampleEvent);
 
-        assertThat(sampleUser.getBalance()).isEqualTo(50.0);
         verify(userRepository, never()).save(any(User.class));
-        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_NAME), eq("balance.failed"), any(BalanceDebitFailedEvent.class));
+        ArgumentCaptor<BalanceDebitFailedEvent> eventCaptor = ArgumentCaptor.forClass(BalanceDebitFailedEvent.class);
+        verify(publisher).publish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("balance.failed"), eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getReason()).isEqualTo(DebitFailureReason.INSUFFICIENT_FUNDS);
     }
 
     @Test
     void whenUserIsNotFound_thenFailureEventIsPublished() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.debitBalance(1L, 100.0)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(false);
         doNothing().when(processedEventService).markActionAsProcessed(any(UUID.class), anyString());
 
         userService.debitUserBalance(sampleEvent);
 
         verify(userRepository, never()).save(any(User.class));
-        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_NAME), eq("balance.failed"), any(BalanceDebitFailedEvent.class));
+        ArgumentCaptor<BalanceDebitFailedEvent> eventCaptor = ArgumentCaptor.forClass(BalanceDebitFailedEvent.class);
+        verify(publisher).publish(eq(RabbitMQConfig.EXCHANGE_NAME), eq("balance.failed"), eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getReason()).isEqualTo(DebitFailureReason.USER_NOT_FOUND);
     }
 
     @Test
@@ -103,8 +116,38 @@ public class UserServiceTest {
         userService.debitUserBalance(sampleEvent);
 
         verifyNoInteractions(userRepository);
-        verifyNoInteractions(rabbitTemplate);
+        verifyNoInteractions(publisher);
 
         verify(processedEventService).markActionAsProcessed(sampleEvent.getOrderId(), "BALANCE_DEBIT");
     }
+
+    @Test
+    void whenBatchOverdrawsAUser_thenOnlyThatOrderFailsAndTheDebitsAreAggregated(){
+        InventoryReservedEvent second = new InventoryReservedEvent(
+                UUID.randomUUID(), "1", "101", "test-product", 1, 25.0, 25.0, "test-username");
+        InventoryReservedEvent third = new InventoryReservedEvent(
+                UUID.randomUUID(), "1", "101", "test-product", 2, 25.0, 50.0, "test-username");
+        when(processedEventService.markNewAsProcessed(anyList(), eq("BALANCE_DEBIT")))
+                .thenReturn(new LinkedHashSet<>(List.of(sampleEvent.getOrderId(), second.getOrderId(), third.getOrderId())));
+        when(userRepository.findAllByIdForUpdate(any())).thenReturn(List.of(sampleUser));
+        when(userRepository.debitBalance(1L, 125.0)).thenReturn(1);
+
+        userService.debitUserBalanceBatch(List.of(sampleEvent, second, third));
+
+        // 150 covers the first two orders (100 + 25); the third would overdraw the user
+        verify(userRepository, times(1)).debitBalance(anyLong(), anyDouble());
+        // nothing is published until the dedupe rows and the debit have been written
+        InOrder inOrder = inOrder(processedEventService, userRepository, publisher);
+        inOrder.verify(processedEventService).markNewAsProcessed(anyList(), eq("BALANCE_DEBIT"));
+        inOrder.verify(userRepository).debitBalance(1L, 125.0);
+        ArgumentCaptor<List<ConfirmingPublisher.Outgoing>> batchCaptor = ArgumentCaptor.captor();
+        inOrder.verify(publisher, times(1)).publishAll(batchCaptor.capture());
+        verifyNoMoreInteractions(publisher);
+        List<ConfirmingPublisher.Outgoing> batch = batchCaptor.getValue();
+        assertThat(batch).extracting(ConfirmingPublisher.Outgoing::routingKey)
+                .containsExactly("balance.success", "balance.success", "balance.failed");
+        BalanceDebitFailedEvent failed = (BalanceDebitFailedEvent) batch.get(2).payload();
+        assertThat(failed.getOrderId()).isEqualTo(third.getOrderId());
+        assertThat(failed.getReason()).isEqualTo(DebitFailureReason.INSUFFICIENT_FUNDS);
+    }
 }